@@ -1,11 +1,38 @@
 package Controller;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+
+import Engine.EngineMetrics;
+import Engine.MoveStrategy;
+import Engine.OpeningBook;
+import Engine.SearchListener;
 import Model.ChessBoard;
+import Model.Move;
+import Model.MoveCommand;
 import View.ChessBoardView;
 
 public class ChessController {
     private ChessBoard board;
     private ChessBoardView view;
+    private final Deque<MoveCommand> undoStack = new ArrayDeque<>();
+    private final Deque<MoveCommand> redoStack = new ArrayDeque<>();
+
+    private MoveStrategy computer; // plays for computerColor, or null for two human players
+    private int computerColor = -1;
+    private OpeningBook book; // consulted before the computer searches, or null
+    private SearchListener searchListener; // progress of background searches, or null
+
+    // Background searches run one at a time, so a strategy is never used by two at once
+    private ExecutorService engine; // created on first use
+    private SearchTask running;
+
+    // Legal move cache counts of the board already added to EngineMetrics
+    private long flushedLookups;
+    private long flushedHits;
 
     public ChessController(ChessBoard board, ChessBoardView view) {
         this.board = board;
@@ -13,9 +40,227 @@ public class ChessController {
         // Setup event handling
     }
 
+    /**
+     * Let a computer opponent play one side
+     * @param strategy how the computer chooses its moves, or null to turn it off
+     * @param color the side the computer plays
+     */
+    public void setComputerOpponent(MoveStrategy strategy, int color) {
+        this.computer = strategy;
+        this.computerColor = strategy == null ? -1 : color;
+    }
+
+    /**
+     * Let the computer opponent play from an opening book while the position is in it
+     * @param book the book, or null to always search
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Show the progress of background searches
+     * @param listener gets each completed iteration on the event dispatch thread, or null
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.searchListener = listener;
+    }
+
+    /**
+     * Play the human's move and let the computer answer in the background. Checking the
+     * move takes microseconds, so it stays on the calling (event dispatch) thread. Clicks
+     * while the computer is to move are ignored.
+     */
     public void handleMove(int fromX, int fromY,int toX, int toY) {
-        board.movePiece(fromX, fromY, toX, toY);
-        
+        if (!isHumanTurn()) return;
+        int move = board.findMove(fromX, fromY, toX, toY);
+        if (move == Move.NONE) return;
+
+        cancelSearch();
+        execute(new MoveCommand(board, move));
+        if (board.sideToMove() == computerColor) {
+            startComputerMove();
+        }
+    }
+
+    /**
+     * Play a move chosen outside the board view, for example one received over the network
+     * @param move a legal packed move of the current position
+     */
+    public void playMove(int move) {
+        execute(new MoveCommand(board, move));
+    }
+
+    /**
+     * Ask the computer opponent for a move and play it. A book move is played without
+     * searching.
+     * @return true if a move was played
+     */
+    public boolean playComputerMove() {
+        if (computer == null) return false;
+        int move = book != null ? book.probe(board) : Move.NONE;
+        if (move == Move.NONE) move = computer.selectMove(board);
+        if (move == Move.NONE) return false;
+
+        execute(new MoveCommand(board, move));
+        return true;
+    }
+
+    /**
+     * Let the computer opponent choose its move on a background thread and play it on the
+     * event dispatch thread when found. A book move is played at once. Must be called on
+     * the event dispatch thread.
+     */
+    public void startComputerMove() {
+        if (computer == null) return;
+        int bookMove = book != null ? book.probe(board) : Move.NONE;
+        if (bookMove != Move.NONE) {
+            execute(new MoveCommand(board, bookMove));
+            repaintView();
+            return;
+        }
+        startSearch(computer, move -> {
+            if (move == Move.NONE) return;
+            execute(new MoveCommand(board, move));
+            repaintView();
+        });
+    }
+
+    /**
+     * Search the best move for the side to move on a background thread, without playing it.
+     * Only on the human's turn, so a hint never cancels the computer's reply. Must be
+     * called on the event dispatch thread.
+     * @param strategy how to search
+     * @param onHint gets the move on the event dispatch thread, unless the search is cancelled
+     * @return true if the search was started
+     */
+    public boolean startHint(MoveStrategy strategy, IntConsumer onHint) {
+        if (!isHumanTurn()) return false;
+        startSearch(strategy, onHint);
+        return true;
+    }
+
+    /**
+     * Check whether a human plays the side to move
+     * @return false while the computer opponent is to move
+     */
+    public boolean isHumanTurn() {
+        return board.sideToMove() != computerColor;
+    }
+
+    private void startSearch(MoveStrategy strategy, IntConsumer onMove) {
+        cancelSearch();
+        if (engine == null) {
+            engine = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "engine");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        SearchTask task = new SearchTask(strategy, board, searchListener, move -> {
+            running = null;
+            onMove.accept(move);
+        });
+        running = task;
+        engine.execute(task);
+    }
+
+    /**
+     * Stop the background search, if any, and drop its result
+     */
+    public void cancelSearch() {
+        if (running == null) return;
+        running.cancelSearch();
+        running = null;
+    }
+
+    /**
+     * Make the background search, if any, finish now with its best move so far
+     */
+    public void moveNow() {
+        if (running != null) running.finishEarly();
+    }
+
+    /**
+     * Check whether a background search is running
+     * @return true while the computer or a hint is thinking
+     */
+    public boolean isSearching() {
+        return running != null;
+    }
+
+    /**
+     * Cancel any search and stop the background thread, for example when the window closes
+     */
+    public void shutdown() {
+        cancelSearch();
+        if (engine != null) engine.shutdownNow();
+    }
+
+    private void repaintView() {
+        if (view != null) view.boardChanged();
+    }
+
+    private void execute(MoveCommand command) {
+        flushCacheCounts();
+        command.execute();
+        undoStack.push(command);
+        redoStack.clear();
+    }
+
+    /**
+     * Add the board's legal move cache counts since the last call to {@link EngineMetrics}
+     */
+    private void flushCacheCounts() {
+        long lookups = board.getLegalMovesLookups();
+        long hits = board.getLegalMovesHits();
+        EngineMetrics.get().addLegalMovesCache(lookups - flushedLookups, hits - flushedHits);
+        flushedLookups = lookups;
+        flushedHits = hits;
+    }
+
+    /**
+     * Take back the last move. Against the computer, its reply is taken back together with
+     * the human's move, so the human is to move again; if the computer opened the game, it
+     * plays its first move again.
+     * @return true if there was a move to take back
+     */
+    public boolean undo() {
+        cancelSearch();
+        if (undoStack.isEmpty()) return false;
+        do {
+            MoveCommand command = undoStack.pop();
+            command.undo();
+            redoStack.push(command);
+        } while (!isHumanTurn() && !undoStack.isEmpty());
+        repaintView();
+        resumeComputer();
+        return true;
+    }
+
+    /**
+     * Replay the last move taken back. Against the computer, its reply is replayed with
+     * the human's move.
+     * @return true if there was a move to replay
+     */
+    public boolean redo() {
+        cancelSearch();
+        if (redoStack.isEmpty()) return false;
+        do {
+            MoveCommand command = redoStack.pop();
+            command.execute();
+            undoStack.push(command);
+        } while (!isHumanTurn() && !redoStack.isEmpty());
+        repaintView();
+        resumeComputer();
+        return true;
+    }
+
+    /**
+     * Let the computer move if undo or redo stopped on its turn
+     */
+    private void resumeComputer() {
+        if (!isHumanTurn()) startComputerMove();
     }
 
 }
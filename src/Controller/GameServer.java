@@ -0,0 +1,294 @@
+package Controller;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.PackedPosition;
+import Model.PositionSnapshot;
+
+/**
+ * Hosts many games at once behind a line-based TCP protocol.
+ *
+ * Every connection is served by its own thread: a virtual thread when the JDK has them
+ * (Java 21 and later, found by reflection so the code still builds on Java 17), otherwise
+ * a pooled platform thread. A connection may play any number of games, addressed by id.
+ * Each game has its own {@link ChessBoard} and {@link ChessController} behind its own
+ * lock, so games never wait for each other; the game map is a {@link ConcurrentHashMap}.
+ *
+ * A game that is not used for a while is parked: its board and controller are dropped
+ * and only the packed start position and two bytes per move are kept. The next request
+ * replays the moves, so an idle game costs tens of bytes instead of kilobytes. Spectators
+ * asking for the position read the game's last published {@link PositionSnapshot}, without
+ * the lock and without unparking it.
+ *
+ * Requests and replies, one line each:
+ * <pre>
+ * new [fen]            game ID
+ * move ID e2e4         ok ID STATUS    (STATUS: playing, check, checkmate, stalemate, draw)
+ * undo ID              ok ID STATUS
+ * fen ID               fen ID FEN
+ * close ID             closed ID
+ * stats                stats games N live N parked N
+ * quit                 (connection closed)
+ * </pre>
+ * Failed requests are answered with {@code error MESSAGE}.
+ *
+ * Usage: java Controller.GameServer [port=N] [idle=SECONDS]
+ * The defaults are port 7070 and 30 seconds.
+ */
+public class GameServer {
+    private final Map<Long, Game> games = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService connections;
+    private final boolean virtualThreads;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadLocal<MoveList> moveLists = ThreadLocal.withInitial(MoveList::new);
+
+    /**
+     * @param idleMillis park games unused for this long
+     */
+    public GameServer(long idleMillis) {
+        ExecutorService virtual = virtualThreadExecutor();
+        virtualThreads = virtual != null;
+        connections = virtualThreads ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(null, runnable, "game-connection", 256 * 1024);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleMillis / 4);
+        sweeper.scheduleWithFixedDelay(() -> park(idleMillis), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 7070;
+        long idleSeconds = 30;
+        for (String arg : args) {
+            if (arg.startsWith("port=")) port = Integer.parseInt(arg.substring(5));
+            else if (arg.startsWith("idle=")) idleSeconds = Long.parseLong(arg.substring(5));
+        }
+        GameServer server = new GameServer(idleSeconds * 1000);
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.bind(new InetSocketAddress(port), 1024);
+            System.out.println("Listening on port " + port + " with " + (server.virtualThreads ? "virtual" : "platform") + " threads");
+            server.serve(socket);
+        }
+    }
+
+    /**
+     * Get an executor starting a virtual thread per task, if the JDK has them (Java 21)
+     * @return the executor, or null
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Accept connections until the socket is closed
+     * @param socket a bound server socket
+     */
+    public void serve(ServerSocket socket) throws IOException {
+        while (!socket.isClosed()) {
+            Socket client = socket.accept();
+            connections.execute(() -> handleConnection(client));
+        }
+    }
+
+    private void handleConnection(Socket client) {
+        try (Socket socket = client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = handle(line.trim());
+                if (reply == null) break;
+                out.write(reply);
+                out.write('\n');
+                // Pipelined requests are answered together
+                if (!in.ready()) out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; its games stay until closed or parked
+        }
+    }
+
+    /**
+     * Answer one request
+     * @param line the request
+     * @return the reply, or null to close the connection
+     */
+    public String handle(String line) {
+        String[] tokens = line.split("\\s+", 3);
+        if (tokens.length < 2 && !tokens[0].equals("new") && !tokens[0].equals("stats") && !tokens[0].equals("quit")) {
+            return "error " + tokens[0] + " needs a game";
+        }
+        try {
+            switch (tokens[0]) {
+                case "new": {
+                    ChessBoard board = tokens.length > 1 ? new ChessBoard(line.substring(4).trim()) : new ChessBoard();
+                    long id = nextId.getAndIncrement();
+                    games.put(id, new Game(board));
+                    return "game " + id;
+                }
+                case "move":
+                    if (tokens.length < 3) return "error move needs a game and a move";
+                    return "ok " + tokens[1] + " " + game(tokens[1]).move(tokens[2], moveLists.get());
+                case "undo":
+                    return "ok " + tokens[1] + " " + game(tokens[1]).undo(moveLists.get());
+                case "fen":
+                    return "fen " + tokens[1] + " " + game(tokens[1]).fen();
+                case "close":
+                    if (games.remove(parseId(tokens[1])) == null) return "error no game " + tokens[1];
+                    return "closed " + tokens[1];
+                case "stats": {
+                    int live = 0;
+                    for (Game game : games.values()) {
+                        if (game.isLive()) live++;
+                    }
+                    return "stats games " + games.size() + " live " + live + " parked " + (games.size() - live);
+                }
+                case "quit":
+                    return null;
+                default:
+                    return "error unknown request " + tokens[0];
+            }
+        } catch (IllegalArgumentException e) {
+            return "error " + e.getMessage();
+        }
+    }
+
+    private Game game(String id) {
+        Game game = games.get(parseId(id));
+        if (game == null) throw new IllegalArgumentException("no game " + id);
+        return game;
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad game id " + id);
+        }
+    }
+
+    /**
+     * Park every game unused for the given time
+     */
+    private void park(long idleMillis) {
+        long now = System.nanoTime();
+        for (Game game : games.values()) {
+            game.parkIfIdle(now, idleMillis * 1_000_000L);
+        }
+    }
+
+    /**
+     * One game. All access goes through its monitor.
+     */
+    private static final class Game {
+        private final byte[] start = new byte[PackedPosition.BYTES];
+        private short[] moves = new short[16]; // compact moves, see Move.toCompact
+        private int plies;
+        private ChessBoard board; // null while parked
+        private ChessController controller;
+        private volatile PositionSnapshot position; // current position, readable without the lock
+        private volatile long lastUsed = System.nanoTime();
+
+        Game(ChessBoard board) {
+            PackedPosition.write(board, ByteBuffer.wrap(start), 0);
+            this.board = board;
+            this.controller = new ChessController(board, null);
+            this.position = board.snapshot();
+        }
+
+        synchronized String move(String text, MoveList legalMoves) {
+            unpark(legalMoves);
+            MoveGenerator.generateMoves(board, legalMoves);
+            int move = Move.parse(text, legalMoves);
+            if (move == Move.NONE) throw new IllegalArgumentException("illegal move " + text);
+            controller.playMove(move);
+            if (plies == moves.length) moves = Arrays.copyOf(moves, Math.max(16, plies * 2));
+            moves[plies++] = (short) Move.toCompact(move);
+            position = board.snapshot();
+            return status(legalMoves);
+        }
+
+        synchronized String undo(MoveList legalMoves) {
+            unpark(legalMoves);
+            if (!controller.undo()) throw new IllegalArgumentException("no move to undo");
+            plies--;
+            position = board.snapshot();
+            return status(legalMoves);
+        }
+
+        /**
+         * Read the position without taking the game's lock or unparking it, so spectators
+         * never wait for a move in progress
+         */
+        String fen() {
+            return position.toFen();
+        }
+
+        synchronized boolean isLive() {
+            return board != null;
+        }
+
+        synchronized void parkIfIdle(long now, long idleNanos) {
+            if (board == null || now - lastUsed < idleNanos) return;
+            board = null;
+            controller = null;
+            moves = Arrays.copyOf(moves, plies);
+        }
+
+        /**
+         * Rebuild the board of a parked game by replaying its moves
+         */
+        private void unpark(MoveList legalMoves) {
+            lastUsed = System.nanoTime();
+            if (board != null) return;
+            board = new ChessBoard();
+            PackedPosition.read(ByteBuffer.wrap(start), 0, board);
+            controller = new ChessController(board, null);
+            for (int i = 0; i < plies; i++) {
+                MoveGenerator.generateMoves(board, legalMoves);
+                controller.playMove(Move.fromCompact(moves[i] & 0xFFFF, legalMoves));
+            }
+        }
+
+        private String status(MoveList legalMoves) {
+            MoveGenerator.generateMoves(board, legalMoves);
+            if (legalMoves.isEmpty()) return board.isInCheck() ? "checkmate" : "stalemate";
+            if (board.isFiftyMoveRule() || board.isThreefoldRepetition()) return "draw";
+            return board.isInCheck() ? "check" : "playing";
+        }
+    }
+}
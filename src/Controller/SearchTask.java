@@ -0,0 +1,89 @@
+package Controller;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+import javax.swing.SwingWorker;
+
+import Engine.MoveStrategy;
+import Engine.SearchListener;
+import Engine.SearchResult;
+import Model.ChessBoard;
+import Model.Move;
+
+/**
+ * Runs a {@link MoveStrategy} off the event dispatch thread.
+ *
+ * The strategy searches a copy of the board on a background thread. Each completed
+ * iteration is published, and the listener gets the latest one on the event dispatch
+ * thread; Swing merges iterations that arrive faster than it repaints. When the search
+ * ends, the move is handed to a callback on the event dispatch thread, unless the task
+ * was cancelled first.
+ */
+public class SearchTask extends SwingWorker<Integer, SearchResult> {
+    private final MoveStrategy strategy;
+    private final ChessBoard position;
+    private final SearchListener progress;
+    private final IntConsumer onMove;
+
+    /**
+     * @param strategy how to choose the move; not used by anything else while the task runs
+     * @param position The chess board; it is copied, so the caller may keep changing it
+     * @param progress gets iterations on the event dispatch thread, or null
+     * @param onMove gets the chosen move on the event dispatch thread, unless cancelled
+     */
+    public SearchTask(MoveStrategy strategy, ChessBoard position, SearchListener progress, IntConsumer onMove) {
+        this.strategy = strategy;
+        this.position = new ChessBoard(position);
+        this.progress = progress;
+        this.onMove = onMove;
+    }
+
+    @Override
+    protected Integer doInBackground() {
+        if (isCancelled()) return Move.NONE;
+        strategy.setListener(result -> {
+            // A cancel that came before the search reset its stop flag is repeated here
+            if (isCancelled()) strategy.stop();
+            publish(result);
+        });
+        try {
+            return strategy.selectMove(position);
+        } finally {
+            strategy.setListener(null);
+        }
+    }
+
+    @Override
+    protected void process(List<SearchResult> results) {
+        if (progress != null && !isCancelled()) progress.onIteration(results.get(results.size() - 1));
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) return;
+        try {
+            onMove.accept(get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stop the search early and still deliver its best move so far
+     */
+    public void finishEarly() {
+        strategy.stop();
+    }
+
+    /**
+     * Stop the search and drop its result; call on the event dispatch thread
+     */
+    public void cancelSearch() {
+        cancel(false);
+        strategy.stop();
+    }
+}
@@ -0,0 +1,412 @@
+package Controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import Engine.EngineMetrics;
+import Engine.LazySmpSearch;
+import Engine.OpeningBook;
+import Engine.SearchLimits;
+import Engine.SearchResult;
+import Engine.Tablebases;
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.Piece;
+import Model.TranspositionTable;
+
+/**
+ * Headless engine speaking the UCI protocol on standard input and output, for tournament
+ * managers and scripts. Nothing from the View package is loaded.
+ *
+ * Commands are read on the calling thread and the search runs on a thread of its own, so
+ * {@code stop} and {@code ponderhit} are handled while it searches. Every completed
+ * iteration is reported as an {@code info} line with depth, score, nodes, nps and PV.
+ *
+ * Supported: uci, isready, ucinewgame, setoption (Hash, Threads, Ponder, TablebasePath,
+ * OwnBook, BookFile),
+ * position, go (wtime, btime, winc, binc, movestogo, movetime, depth, nodes, infinite,
+ * ponder), ponderhit, stop and quit.
+ *
+ * Usage: java Controller.UciController
+ */
+public class UciController {
+    private static final String NAME = "JavaChess";
+    private static final int DEFAULT_HASH_MB = 16;
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+    private static final long MOVE_OVERHEAD_MILLIS = 30; // time kept back for the GUI and the pipe
+
+    private final PrintStream out;
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uci-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uci-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TranspositionTable table = new TranspositionTable(DEFAULT_HASH_MB);
+    private final LazySmpSearch search = new LazySmpSearch(table, SearchLimits.infinite(), 1);
+    private Tablebases tablebases; // or null
+    private OpeningBook book; // or null
+    private boolean ownBook;
+    private ChessBoard position = new ChessBoard();
+
+    private Future<?> running;
+    private volatile SearchResult lastIteration; // of the running search, or null
+    private volatile boolean stopRequested;
+    private CountDownLatch release = new CountDownLatch(0); // held while pondering or searching infinitely
+    private ScheduledFuture<?> deadline;
+    private long ponderBudgetMillis;
+
+    public UciController(PrintStream out) {
+        this.out = out;
+        search.setListener(this::sendInfo);
+    }
+
+    public static void main(String[] args) throws IOException {
+        EngineMetrics.register();
+        UciController engine = new UciController(System.out);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!engine.handle(line.trim())) break;
+        }
+        engine.quit();
+    }
+
+    /**
+     * Handle one command line
+     * @param line the command
+     * @return false after "quit"
+     */
+    public boolean handle(String line) {
+        String[] tokens = line.split("\\s+");
+        try {
+            switch (tokens[0]) {
+                case "uci":
+                    send("id name " + NAME);
+                    send("id author OliverIsBad");
+                    send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                    send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                    send("option name Ponder type check default false");
+                    send("option name TablebasePath type string default <empty>");
+                    send("option name OwnBook type check default false");
+                    send("option name BookFile type string default <empty>");
+                    send("uciok");
+                    break;
+                case "isready":
+                    send("readyok");
+                    break;
+                case "ucinewgame":
+                    waitForSearch();
+                    table.clear();
+                    break;
+                case "setoption":
+                    setOption(line);
+                    break;
+                case "position":
+                    setPosition(tokens);
+                    break;
+                case "go":
+                    go(tokens);
+                    break;
+                case "ponderhit":
+                    ponderHit();
+                    break;
+                case "stop":
+                    stop();
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    // Unknown commands are ignored, as the protocol asks
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            send("info string " + e.getMessage());
+        } catch (RuntimeException e) {
+            // A broken command must not end the engine; the GUI would wait forever
+            send("info string " + tokens[0] + " failed: " + e);
+        }
+        return true;
+    }
+
+    /**
+     * Stop searching and release the threads
+     */
+    public void quit() {
+        stop();
+        waitForSearch();
+        searchThread.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private void setOption(String line) {
+        int nameStart = line.indexOf(" name ");
+        if (nameStart < 0) throw new IllegalArgumentException("setoption without name");
+        int valueStart = line.indexOf(" value ");
+        String name = (valueStart < 0 ? line.substring(nameStart + 6) : line.substring(nameStart + 6, valueStart)).trim();
+        String value = valueStart < 0 ? "" : line.substring(valueStart + 7).trim();
+
+        waitForSearch();
+        switch (name.toLowerCase()) {
+            case "hash":
+                table.resize(Math.max(1, Math.min(MAX_HASH_MB, parseInt(value))));
+                break;
+            case "threads":
+                search.setThreads(Math.max(1, Math.min(MAX_THREADS, parseInt(value))));
+                break;
+            case "ponder":
+                // Pondering is driven by "go ponder"; nothing to set up
+                break;
+            case "tablebasepath":
+                if (value.isEmpty() || value.equals("<empty>")) {
+                    tablebases = null;
+                } else {
+                    try {
+                        tablebases = Tablebases.load(Paths.get(value));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot read tablebases: " + e.getMessage());
+                    }
+                    send("info string " + tablebases.maxPieces() + "-piece tablebases loaded");
+                }
+                search.setTablebases(tablebases);
+                break;
+            case "ownbook":
+                ownBook = Boolean.parseBoolean(value);
+                break;
+            case "bookfile":
+                if (value.isEmpty() || value.equals("<empty>")) {
+                    book = null;
+                } else {
+                    try {
+                        book = OpeningBook.open(Paths.get(value));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot read book: " + e.getMessage());
+                    }
+                    send("info string book with " + book.size() + " entries loaded");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("No such option: " + name);
+        }
+    }
+
+    /**
+     * Handle "position [startpos | fen ...] [moves ...]"
+     */
+    private void setPosition(String[] tokens) {
+        int i = 1;
+        ChessBoard board;
+        if (i < tokens.length && tokens[i].equals("startpos")) {
+            board = new ChessBoard();
+            i++;
+        } else if (i < tokens.length && tokens[i].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (i++; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                fen.append(tokens[i]).append(' ');
+            }
+            board = new ChessBoard(fen.toString().trim());
+        } else {
+            throw new IllegalArgumentException("position needs startpos or fen");
+        }
+
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            MoveList moves = new MoveList();
+            for (i++; i < tokens.length; i++) {
+                MoveGenerator.generateMoves(board, moves);
+                int move = Move.parse(tokens[i], moves);
+                if (move == Move.NONE) throw new IllegalArgumentException("Illegal move: " + tokens[i]);
+                board.makeMove(move);
+            }
+        }
+        position = board;
+    }
+
+    /**
+     * Handle "go" and start the search; the best move is sent when it ends
+     */
+    private void go(String[] tokens) {
+        waitForSearch();
+        long time = 0;
+        long increment = 0;
+        int movesToGo = 0;
+        int depth = 0;
+        long nodes = 0;
+        long moveTime = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+        boolean white = position.sideToMove() == Piece.WHITE;
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "wtime": if (white) time = parseLong(tokens, ++i); else i++; break;
+                case "btime": if (!white) time = parseLong(tokens, ++i); else i++; break;
+                case "winc": if (white) increment = parseLong(tokens, ++i); else i++; break;
+                case "binc": if (!white) increment = parseLong(tokens, ++i); else i++; break;
+                case "movestogo": movesToGo = parseInt(tokens, ++i); break;
+                case "depth": depth = parseInt(tokens, ++i); break;
+                case "nodes": nodes = parseLong(tokens, ++i); break;
+                case "movetime": moveTime = parseLong(tokens, ++i); break;
+                case "infinite": infinite = true; break;
+                case "ponder": ponder = true; break;
+                default: break;
+            }
+        }
+
+        // A book move is played without searching, unless the GUI waits for "stop"
+        if (ownBook && book != null && !ponder && !infinite) {
+            int bookMove = book.probe(position);
+            if (bookMove != Move.NONE) {
+                send("bestmove " + Move.toString(bookMove));
+                return;
+            }
+        }
+
+        long budget = moveTime > 0 ? Math.max(1, moveTime - MOVE_OVERHEAD_MILLIS) : timeBudget(time, increment, movesToGo);
+        // While pondering the clock belongs to the opponent; the budget starts at ponderhit
+        SearchLimits limits = new SearchLimits(depth, nodes, ponder || infinite ? 0 : budget);
+        ponderBudgetMillis = budget;
+        stopRequested = false;
+        release = new CountDownLatch(ponder || infinite ? 1 : 0);
+        CountDownLatch held = release;
+        ChessBoard root = position;
+        lastIteration = null;
+        running = searchThread.submit(() -> {
+            SearchResult result;
+            try {
+                result = search.search(root, limits);
+            } catch (RuntimeException e) {
+                // The GUI still waits for a best move: answer with the deepest iteration, if any
+                send("info string search failed: " + e);
+                result = lastIteration;
+            }
+            // The protocol allows no best move before "stop" or "ponderhit" in these modes
+            try {
+                held.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (result == null) {
+                send("bestmove 0000");
+                return;
+            }
+            String bestMove = "bestmove " + Move.toString(result.getBestMove());
+            if (result.getPonderMove() != Move.NONE) bestMove += " ponder " + Move.toString(result.getPonderMove());
+            send(bestMove);
+        });
+    }
+
+    /**
+     * The opponent played the expected move: keep searching, now on our own clock
+     */
+    private void ponderHit() {
+        if (running == null || running.isDone()) return;
+        if (ponderBudgetMillis > 0) {
+            deadline = timer.schedule(search::stop, ponderBudgetMillis, TimeUnit.MILLISECONDS);
+        }
+        release.countDown();
+    }
+
+    private void stop() {
+        stopRequested = true;
+        search.stop();
+        release.countDown();
+    }
+
+    /**
+     * Wait until the previous search has sent its best move
+     */
+    private void waitForSearch() {
+        if (running == null) return;
+        if (release.getCount() > 0) stop();
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Only sending the best move can fail here; the engine goes on with the next command
+            send("info string search failed: " + e.getCause());
+        } finally {
+            running = null;
+            if (deadline != null) deadline.cancel(false);
+            deadline = null;
+        }
+    }
+
+    /**
+     * Report a completed iteration; runs on the search thread
+     */
+    private void sendInfo(SearchResult result) {
+        // A stop that arrived before the search reset its flag is repeated here
+        if (stopRequested) search.stop();
+        lastIteration = result;
+        String score = result.isMate() ? "mate " + result.getMateIn() : "cp " + result.getScore();
+        long nodes = search.getNodes();
+        long millis = result.getTimeMillis();
+        send("info depth " + result.getDepth() + " score " + score + " nodes " + nodes
+            + " nps " + (millis > 0 ? nodes * 1000 / millis : nodes * 1000) + " time " + millis
+            + " hashfull " + table.hashfull() + " pv " + result.pvString());
+    }
+
+    /**
+     * Split the remaining time: an even share of the moves to go, plus most of the increment
+     * @return milliseconds for this move, or 0 for no time limit
+     */
+    private static long timeBudget(long time, long increment, int movesToGo) {
+        if (time <= 0) return 0;
+        int moves = movesToGo > 0 ? Math.min(movesToGo, 40) : 30;
+        long budget = time / moves + increment * 3 / 4;
+        return Math.max(1, Math.min(budget, time - MOVE_OVERHEAD_MILLIS));
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    private static int parseInt(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + text);
+        }
+    }
+
+    private static int parseInt(String[] tokens, int i) {
+        if (i >= tokens.length) throw new IllegalArgumentException("Missing value after " + tokens[i - 1]);
+        return parseInt(tokens[i]);
+    }
+
+    private static long parseLong(String[] tokens, int i) {
+        if (i >= tokens.length) throw new IllegalArgumentException("Missing value after " + tokens[i - 1]);
+        return parseLong(tokens[i]);
+    }
+
+    private static long parseLong(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + text);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package Engine;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.Piece;
+import Model.TranspositionTable;
+
+/**
+ * Computer opponent based on iterative-deepening alpha-beta search.
+ *
+ * Each iteration runs a principal variation search (PVS): the first move of a node is
+ * searched with the full window and the rest with a null window, re-searched only if
+ * they turn out better. Leaves are resolved with a quiescence search over captures and
+ * promotions. Moves are ordered hash move first, then captures by MVV-LVA, then the two
+ * killer moves of the ply, then quiet moves by history score. Null-move pruning and late
+ * move reductions cut the tree further.
+ *
+ * The search stops at the depth, node or time limit of its {@link SearchLimits}, or when
+ * {@link #stop()} is called, and returns the result of the last completed iteration.
+ * An instance searches one position at a time; it works on its own copy of the board.
+ *
+ * Nodes, generated moves and table probes are counted in plain fields, since only the
+ * searching thread touches them, and added to {@link EngineMetrics} after each iteration.
+ */
+public class AlphaBetaSearch implements MoveStrategy {
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    private static final int HASH_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int KILLER_SCORE = 90_000;
+    private static final int HISTORY_LIMIT = 60_000;
+
+    private final TranspositionTable table;
+    private final Evaluation evaluation = new Evaluation();
+    private SearchLimits limits;
+    private SearchListener listener;
+    private Tablebases tablebases;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] moveScores = new int[MAX_PLY + 1][MoveList.CAPACITY];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private ChessBoard board;
+    private long nodes;
+    private long nodeLimit;
+    private long deadlineNanos;
+    private volatile boolean stopRequested;
+    private boolean aborted;
+
+    // Counts of the current search, and the part of them already added to EngineMetrics
+    private long movesGenerated;
+    private long transpositionProbes;
+    private long transpositionHits;
+    private long tablebaseProbes;
+    private long tablebaseHits;
+    private long flushedNodes;
+    private long flushedNanos;
+    private long flushedMoves;
+    private long flushedTranspositionProbes;
+    private long flushedTranspositionHits;
+    private long flushedTablebaseProbes;
+    private long flushedTablebaseHits;
+    private long flushedPawnProbes;
+    private long flushedPawnHits;
+
+    public AlphaBetaSearch(TranspositionTable table, SearchLimits limits) {
+        this.table = table;
+        this.limits = limits;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    public void setLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Use endgame tables: positions they cover are scored exactly instead of searched
+     * @param tablebases the tables, or null
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Forget all stored search results, for example before a new game; must not be called
+     * during a search
+     */
+    public void clearHash() {
+        table.clear();
+    }
+
+    /**
+     * Ask a running search to stop; it returns the last completed iteration
+     */
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    @Override
+    public int selectMove(ChessBoard board) {
+        return search(board, limits).getBestMove();
+    }
+
+    /**
+     * Search a position
+     * @param position The chess board; it is copied and left unchanged
+     * @param limits when to stop
+     * @return result of the deepest completed iteration
+     */
+    public SearchResult search(ChessBoard position, SearchLimits limits) {
+        table.newSearch();
+        stopRequested = false;
+        return runSearch(position, limits, 1);
+    }
+
+    /**
+     * Forget an earlier {@link #stop()} before the next search is started
+     */
+    void resetStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Search a position without starting a new transposition table generation, so several
+     * searchers can share one table. A stop requested before the call is kept.
+     * @param position The chess board; it is copied and left unchanged
+     * @param limits when to stop
+     * @param startDepth depth of the first iteration
+     * @return result of the deepest completed iteration
+     */
+    SearchResult runSearch(ChessBoard position, SearchLimits limits, int startDepth) {
+        board = new ChessBoard(position);
+        long startNanos = System.nanoTime();
+        resetCounts();
+        EngineMetrics.get().searchStarted();
+        nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        deadlineNanos = limits.getTimeMillis() > 0 ? startNanos + limits.getTimeMillis() * 1_000_000L : Long.MAX_VALUE;
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+        aborted = false;
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        for (int[] pieceHistory : history) {
+            for (int square = 0; square < 64; square++) {
+                pieceHistory[square] /= 8;
+            }
+        }
+
+        // Without a completed iteration, fall back to the first legal move
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateMoves(board, rootMoves);
+        movesGenerated += rootMoves.size();
+        SearchResult best = new SearchResult(rootMoves.isEmpty() ? new int[0] : new int[]{rootMoves.get(0)},
+            board.isInCheck() ? -MATE : 0, 0, 0, 0);
+        if (rootMoves.isEmpty()) {
+            flushCounts(System.nanoTime());
+            return best;
+        }
+
+        long previousIterationNodes = 0;
+        for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++) {
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            long iterationStartNanos = System.nanoTime();
+            long nodesBefore = nodes;
+            long probesBefore = transpositionProbes;
+            long hitsBefore = transpositionHits;
+            long pawnProbesBefore = evaluation.getPawnProbes();
+            long pawnHitsBefore = evaluation.getPawnHits();
+            int score = negamax(depth, -INFINITY, INFINITY, 0, true);
+            if (aborted) break;
+
+            long now = System.nanoTime();
+            long elapsedMillis = (now - startNanos) / 1_000_000L;
+            int[] pv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, pv, 0, pv.length);
+            best = new SearchResult(pv, score, depth, nodes, elapsedMillis);
+
+            long iterationNodes = nodes - nodesBefore;
+            double branchingFactor = previousIterationNodes > 0 ? (double) iterationNodes / previousIterationNodes : 0;
+            previousIterationNodes = iterationNodes;
+            flushCounts(now);
+            EngineMetrics.get().iterationCompleted(depth, now - iterationStartNanos, branchingFactor);
+            event.end();
+            if (event.shouldCommit()) {
+                long probes = transpositionProbes - probesBefore;
+                event.depth = depth;
+                event.score = score;
+                event.nodes = iterationNodes;
+                event.totalNodes = nodes;
+                event.nodesPerSecond = best.getNodesPerSecond();
+                event.branchingFactor = branchingFactor;
+                event.transpositionHitRate = probes > 0 ? (double) (transpositionHits - hitsBefore) / probes : 0;
+                long pawnProbes = evaluation.getPawnProbes() - pawnProbesBefore;
+                event.pawnHashHitRate = pawnProbes > 0 ? (double) (evaluation.getPawnHits() - pawnHitsBefore) / pawnProbes : 0;
+                event.bestMove = Move.toString(best.getBestMove());
+                event.commit();
+            }
+            if (listener != null) listener.onIteration(best);
+
+            // A forced mate shorter than the depth will not change any more
+            if (Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= depth) break;
+            // Another iteration takes longer than all before it; do not start one that cannot finish
+            if (limits.getTimeMillis() > 0 && elapsedMillis * 2 > limits.getTimeMillis()) break;
+        }
+        flushCounts(System.nanoTime());
+        return best;
+    }
+
+    private void resetCounts() {
+        nodes = 0;
+        movesGenerated = 0;
+        transpositionProbes = 0;
+        transpositionHits = 0;
+        tablebaseProbes = 0;
+        tablebaseHits = 0;
+        flushedNodes = 0;
+        flushedMoves = 0;
+        flushedTranspositionProbes = 0;
+        flushedTranspositionHits = 0;
+        flushedTablebaseProbes = 0;
+        flushedTablebaseHits = 0;
+        // The pawn cache outlives a search, so its counts run on from the last flush
+        flushedPawnProbes = evaluation.getPawnProbes();
+        flushedPawnHits = evaluation.getPawnHits();
+        flushedNanos = System.nanoTime();
+    }
+
+    /**
+     * Add what was counted since the last flush to {@link EngineMetrics}
+     * @param now current {@link System#nanoTime()}
+     */
+    private void flushCounts(long now) {
+        EngineMetrics.get().add(nodes - flushedNodes, now - flushedNanos, movesGenerated - flushedMoves,
+            transpositionProbes - flushedTranspositionProbes, transpositionHits - flushedTranspositionHits,
+            tablebaseProbes - flushedTablebaseProbes, tablebaseHits - flushedTablebaseHits,
+            evaluation.getPawnProbes() - flushedPawnProbes, evaluation.getPawnHits() - flushedPawnHits);
+        flushedNodes = nodes;
+        flushedNanos = now;
+        flushedMoves = movesGenerated;
+        flushedTranspositionProbes = transpositionProbes;
+        flushedTranspositionHits = transpositionHits;
+        flushedTablebaseProbes = tablebaseProbes;
+        flushedTablebaseHits = tablebaseHits;
+        flushedPawnProbes = evaluation.getPawnProbes();
+        flushedPawnHits = evaluation.getPawnHits();
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply, boolean pvNode) {
+        pvLength[ply] = ply;
+        if ((++nodes & 1023) == 0) checkLimits();
+        if (aborted) return 0;
+
+        if (ply > 0) {
+            if (board.isFiftyMoveRule() || board.repetitionCount() >= 2) return 0;
+            if (ply >= MAX_PLY) return evaluation.evaluate(board);
+
+            // Mate distance pruning: no line can beat a mate already found closer to the root
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) return alpha;
+
+            if (tablebases != null && Long.bitCount(board.occupied()) <= tablebases.maxPieces()) {
+                int value = tablebases.probe(board);
+                tablebaseProbes++;
+                if (value != Tablebases.NOT_FOUND) {
+                    tablebaseHits++;
+                    if (Tablebase.isWin(value)) return MATE - ply - Tablebase.distance(value);
+                    if (Tablebase.isLoss(value)) return -MATE + ply + Tablebase.distance(value);
+                    return 0;
+                }
+            }
+        }
+
+        boolean inCheck = board.isInCheck();
+        if (inCheck) depth++;
+        if (depth <= 0) return quiescence(alpha, beta, ply);
+
+        long key = board.key();
+        int hashMove = Move.NONE;
+        long entry = table.probe(key);
+        transpositionProbes++;
+        if (entry != 0) {
+            transpositionHits++;
+            hashMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // Null move: if passing still fails high, a real move will too
+        if (!pvNode && !inCheck && depth >= 3 && Math.abs(beta) < MATE_BOUND
+            && Evaluation.hasNonPawnMaterial(board, board.sideToMove()) && evaluation.evaluate(board) >= beta) {
+            board.makeNullMove();
+            int score = -negamax(depth - 3 - depth / 6, -beta, -beta + 1, ply + 1, false);
+            board.unmakeNullMove();
+            if (aborted) return 0;
+            if (score >= beta) return score >= MATE_BOUND ? beta : score;
+        }
+
+        MoveList moves = moveLists[ply];
+        MoveGenerator.generateMoves(board, moves);
+        movesGenerated += moves.size();
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, hashMove);
+
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int bound = TranspositionTable.UPPER;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickMove(moves, ply, i);
+            boolean quiet = !Move.isCapture(move) && Move.flag(move) != Move.PROMOTION;
+
+            board.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1, pvNode);
+            } else {
+                // Late quiet moves are searched one ply shallower first
+                int reduction = depth >= 3 && i >= 3 && quiet && !inCheck && !board.isInCheck()
+                    && move != killers[ply][0] && move != killers[ply][1] ? 1 + i / 12 : 0;
+                score = -negamax(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, false);
+                if (score > alpha && reduction > 0) {
+                    score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1, false);
+                }
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            board.unmakeMove();
+            if (aborted) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    bound = TranspositionTable.EXACT;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        bound = TranspositionTable.LOWER;
+                        if (quiet) updateQuietHeuristics(move, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        table.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if ((++nodes & 1023) == 0) checkLimits();
+        if (aborted) return 0;
+        if (ply >= MAX_PLY) return evaluation.evaluate(board);
+
+        boolean inCheck = board.isInCheck();
+        MoveList moves = moveLists[ply];
+        int bestScore;
+        if (inCheck) {
+            // Every evasion has to be looked at, or a mate would be missed
+            bestScore = -MATE + ply;
+            MoveGenerator.generateMoves(board, moves);
+        } else {
+            int standPat = evaluation.evaluate(board);
+            if (standPat >= beta) return standPat;
+            if (standPat > alpha) alpha = standPat;
+            bestScore = standPat;
+            MoveGenerator.generateCaptures(board, moves);
+        }
+        movesGenerated += moves.size();
+        scoreMoves(moves, ply, Move.NONE);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickMove(moves, ply, i);
+            board.makeMove(move);
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (aborted) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) break;
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private void checkLimits() {
+        if (stopRequested || nodes >= nodeLimit || System.nanoTime() >= deadlineNanos) {
+            aborted = true;
+        }
+    }
+
+    private void scoreMoves(MoveList moves, int ply, int hashMove) {
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (move == hashMove) {
+                scores[i] = HASH_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.flag(move) == Move.PROMOTION) {
+                // Most valuable victim first, least valuable attacker breaks ties
+                int victim = Move.isCapture(move) ? Evaluation.PIECE_VALUES[Piece.typeOf(Move.captured(move))] : 0;
+                int promotion = Move.flag(move) == Move.PROMOTION ? Evaluation.PIECE_VALUES[Move.promotion(move)] : 0;
+                scores[i] = CAPTURE_SCORE + 10 * (victim + promotion) - Piece.typeOf(Move.piece(move));
+            } else if (move == killers[ply][0]) {
+                scores[i] = KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                scores[i] = KILLER_SCORE - 1;
+            } else {
+                scores[i] = history[Move.piece(move)][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Move the best scored of the remaining moves to position i (selection sort, one step
+     * at a time, since a cutoff often comes before the list is used up)
+     */
+    private int pickMove(MoveList moves, int ply, int i) {
+        int[] scores = moveScores[ply];
+        int best = i;
+        for (int j = i + 1; j < moves.size(); j++) {
+            if (scores[j] > scores[best]) best = j;
+        }
+        if (best != i) {
+            moves.swap(i, best);
+            int score = scores[i];
+            scores[i] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(i);
+    }
+
+    private void updateQuietHeuristics(int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] pieceHistory = history[Move.piece(move)];
+        pieceHistory[Move.to(move)] += depth * depth;
+        if (pieceHistory[Move.to(move)] > HISTORY_LIMIT) {
+            for (int[] row : history) {
+                for (int square = 0; square < 64; square++) {
+                    row[square] /= 2;
+                }
+            }
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, childLength - ply - 1);
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    /**
+     * Mate scores are stored relative to the node, not the root, so they stay correct
+     * when the position is reached at another ply
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_BOUND) return score + ply;
+        if (score <= -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_BOUND) return score - ply;
+        if (score <= -MATE_BOUND) return score + ply;
+        return score;
+    }
+}
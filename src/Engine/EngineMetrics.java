@@ -0,0 +1,269 @@
+package Engine;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Process-wide search statistics.
+ *
+ * A search counts into plain fields of its own {@link AlphaBetaSearch}, which only its
+ * thread touches, and adds them here once per iteration. The totals are {@link LongAdder}s,
+ * striped per thread, so many search threads flushing at once do not contend on one
+ * counter and the search loop itself pays nothing beyond a field increment.
+ *
+ * {@link #register()} publishes the totals as the MBean {@value #OBJECT_NAME} and as the
+ * periodic Flight Recorder event {@code javachess.EngineStatistics}; each completed
+ * iteration is also recorded as a {@code javachess.SearchIteration} event.
+ *
+ * Next to the hash table the pawn structure cache of the evaluation and the legal move
+ * cache of the boards are reported. The latter serves the board view and move checking,
+ * not the search; each board counts on its own and the controller owning it adds the
+ * counts here once per move played.
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+    public static final String OBJECT_NAME = "JavaChess:type=Engine";
+
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder movesGenerated = new LongAdder();
+    private final LongAdder transpositionProbes = new LongAdder();
+    private final LongAdder transpositionHits = new LongAdder();
+    private final LongAdder tablebaseProbes = new LongAdder();
+    private final LongAdder tablebaseHits = new LongAdder();
+    private final LongAdder pawnHashProbes = new LongAdder();
+    private final LongAdder pawnHashHits = new LongAdder();
+    private final LongAdder legalMovesLookups = new LongAdder();
+    private final LongAdder legalMovesHits = new LongAdder();
+    private final LongAdder[] iterationsByDepth = newAdders(AlphaBetaSearch.MAX_PLY);
+    private final LongAdder[] iterationNanosByDepth = newAdders(AlphaBetaSearch.MAX_PLY);
+
+    // Last completed iteration of any search thread
+    private volatile int lastDepth;
+    private volatile long lastIterationNanos;
+    private volatile double lastBranchingFactor;
+
+    private EngineMetrics() {
+    }
+
+    public static EngineMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publish the statistics over JMX and to Flight Recorder. Calling it again does nothing.
+     * @throws IllegalStateException if the MBean cannot be registered
+     */
+    public static synchronized void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            return;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+        FlightRecorder.addPeriodicEvent(EngineStatisticsEvent.class, INSTANCE::emitStatistics);
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    void searchStarted() {
+        searches.increment();
+    }
+
+    /**
+     * Add the counts of a search since its last flush
+     */
+    void add(long nodes, long nanos, long movesGenerated, long transpositionProbes, long transpositionHits,
+             long tablebaseProbes, long tablebaseHits, long pawnHashProbes, long pawnHashHits) {
+        this.nodes.add(nodes);
+        this.searchNanos.add(nanos);
+        this.movesGenerated.add(movesGenerated);
+        this.transpositionProbes.add(transpositionProbes);
+        this.transpositionHits.add(transpositionHits);
+        this.tablebaseProbes.add(tablebaseProbes);
+        this.tablebaseHits.add(tablebaseHits);
+        this.pawnHashProbes.add(pawnHashProbes);
+        this.pawnHashHits.add(pawnHashHits);
+    }
+
+    /**
+     * Add the legal move cache counts of a board since its owner last added them
+     * @param lookups calls of the board's legal move lookup
+     * @param hits lookups answered without generating moves
+     */
+    public void addLegalMovesCache(long lookups, long hits) {
+        legalMovesLookups.add(lookups);
+        legalMovesHits.add(hits);
+    }
+
+    void iterationCompleted(int depth, long nanos, double branchingFactor) {
+        iterations.increment();
+        iterationsByDepth[depth].increment();
+        iterationNanosByDepth[depth].add(nanos);
+        lastDepth = depth;
+        lastIterationNanos = nanos;
+        lastBranchingFactor = branchingFactor;
+    }
+
+    private void emitStatistics() {
+        EngineStatisticsEvent event = new EngineStatisticsEvent();
+        event.searches = getSearches();
+        event.nodes = getNodes();
+        event.nodesPerSecond = getNodesPerSecond();
+        event.movesGenerated = getMovesGenerated();
+        event.transpositionHitRate = getTranspositionHitRate();
+        event.tablebaseHits = getTablebaseHits();
+        event.pawnHashHitRate = getPawnHashHitRate();
+        event.legalMovesCacheHitRate = getLegalMovesCacheHitRate();
+        event.commit();
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getIterations() {
+        return iterations.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos > 0 ? (long) (nodes.sum() * 1e9 / nanos) : 0;
+    }
+
+    @Override
+    public long getSearchMillis() {
+        return searchNanos.sum() / 1_000_000L;
+    }
+
+    @Override
+    public long getMovesGenerated() {
+        return movesGenerated.sum();
+    }
+
+    @Override
+    public long getTranspositionProbes() {
+        return transpositionProbes.sum();
+    }
+
+    @Override
+    public long getTranspositionHits() {
+        return transpositionHits.sum();
+    }
+
+    @Override
+    public double getTranspositionHitRate() {
+        long probes = transpositionProbes.sum();
+        return probes > 0 ? (double) transpositionHits.sum() / probes : 0;
+    }
+
+    @Override
+    public long getTablebaseProbes() {
+        return tablebaseProbes.sum();
+    }
+
+    @Override
+    public long getTablebaseHits() {
+        return tablebaseHits.sum();
+    }
+
+    @Override
+    public long getPawnHashProbes() {
+        return pawnHashProbes.sum();
+    }
+
+    @Override
+    public long getPawnHashHits() {
+        return pawnHashHits.sum();
+    }
+
+    @Override
+    public double getPawnHashHitRate() {
+        long probes = pawnHashProbes.sum();
+        return probes > 0 ? (double) pawnHashHits.sum() / probes : 0;
+    }
+
+    @Override
+    public long getLegalMovesCacheLookups() {
+        return legalMovesLookups.sum();
+    }
+
+    @Override
+    public long getLegalMovesCacheHits() {
+        return legalMovesHits.sum();
+    }
+
+    @Override
+    public double getLegalMovesCacheHitRate() {
+        long lookups = legalMovesLookups.sum();
+        return lookups > 0 ? (double) legalMovesHits.sum() / lookups : 0;
+    }
+
+    @Override
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    @Override
+    public long getLastIterationMillis() {
+        return lastIterationNanos / 1_000_000L;
+    }
+
+    @Override
+    public double getLastBranchingFactor() {
+        return lastBranchingFactor;
+    }
+
+    @Override
+    public long[] getAverageMillisByDepth() {
+        int deepest = 0;
+        for (int depth = 1; depth < iterationsByDepth.length; depth++) {
+            if (iterationsByDepth[depth].sum() > 0) deepest = depth;
+        }
+        long[] millis = new long[deepest + 1];
+        for (int depth = 1; depth <= deepest; depth++) {
+            long count = iterationsByDepth[depth].sum();
+            if (count > 0) millis[depth] = iterationNanosByDepth[depth].sum() / count / 1_000_000L;
+        }
+        return millis;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[]{searches, iterations, nodes, searchNanos, movesGenerated,
+            transpositionProbes, transpositionHits, tablebaseProbes, tablebaseHits, pawnHashProbes, pawnHashHits, legalMovesLookups, legalMovesHits}) {
+            adder.reset();
+        }
+        for (int depth = 0; depth < iterationsByDepth.length; depth++) {
+            iterationsByDepth[depth].reset();
+            iterationNanosByDepth[depth].reset();
+        }
+        lastDepth = 0;
+        lastIterationNanos = 0;
+        lastBranchingFactor = 0;
+    }
+}
@@ -0,0 +1,69 @@
+package Engine;
+
+/**
+ * Management interface of {@link EngineMetrics}, as seen by JMX clients such as JConsole
+ * or a metrics exporter. Counters only grow until {@link #reset()}.
+ */
+public interface EngineMetricsMBean {
+    long getSearches();
+
+    long getIterations();
+
+    long getNodes();
+
+    /**
+     * @return nodes per second of search thread time, over all searches
+     */
+    long getNodesPerSecond();
+
+    long getSearchMillis();
+
+    long getMovesGenerated();
+
+    long getTranspositionProbes();
+
+    long getTranspositionHits();
+
+    /**
+     * @return transposition table hits per probe, between 0 and 1
+     */
+    double getTranspositionHitRate();
+
+    long getTablebaseProbes();
+
+    long getTablebaseHits();
+
+    long getPawnHashProbes();
+
+    long getPawnHashHits();
+
+    /**
+     * @return pawn structure cache hits per probe of the evaluation, between 0 and 1
+     */
+    double getPawnHashHitRate();
+
+    long getLegalMovesCacheLookups();
+
+    long getLegalMovesCacheHits();
+
+    /**
+     * @return share of the board's legal move lookups answered without move generation
+     */
+    double getLegalMovesCacheHitRate();
+
+    int getLastDepth();
+
+    long getLastIterationMillis();
+
+    /**
+     * @return nodes of the last iteration divided by the nodes of the one before
+     */
+    double getLastBranchingFactor();
+
+    /**
+     * @return average time of an iteration by depth, in milliseconds; index 0 is unused
+     */
+    long[] getAverageMillisByDepth();
+
+    void reset();
+}
@@ -0,0 +1,45 @@
+package Engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic Flight Recorder event with the process-wide totals of {@link EngineMetrics}
+ */
+@Name("javachess.EngineStatistics")
+@Label("Engine Statistics")
+@Category({"JavaChess", "Search"})
+@Description("Search totals since the engine started")
+@Period("1 s")
+@StackTrace(false)
+class EngineStatisticsEvent extends jdk.jfr.Event {
+    @Label("Searches")
+    long searches;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Nodes per Second")
+    @Description("Nodes per second of search thread time")
+    long nodesPerSecond;
+
+    @Label("Moves Generated")
+    long movesGenerated;
+
+    @Label("Transposition Hit Rate")
+    double transpositionHitRate;
+
+    @Label("Tablebase Hits")
+    long tablebaseHits;
+
+    @Label("Pawn Hash Hit Rate")
+    double pawnHashHitRate;
+
+    @Label("Legal Moves Cache Hit Rate")
+    @Description("Share of legal move lookups on boards answered without move generation")
+    double legalMovesCacheHitRate;
+}
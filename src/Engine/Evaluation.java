@@ -0,0 +1,220 @@
+package Engine;
+
+import Model.Attacks;
+import Model.ChessBoard;
+import Model.Piece;
+import Model.PieceSquareTables;
+
+/**
+ * Static evaluation, in centipawns from the point of view of the side to move.
+ *
+ * Terms are scored twice, for the middlegame and for the endgame, and blended by the
+ * game phase (tapered evaluation):
+ * <ul>
+ *   <li>material and piece-square tables, which the board updates incrementally on every
+ *       move, see {@link PieceSquareTables}; reading them costs nothing</li>
+ *   <li>mobility: squares each knight, bishop, rook and queen can go to that are not
+ *       held by an own piece or attacked by an enemy pawn</li>
+ *   <li>king safety: pieces attacking the squares around the king, and the pawn shield</li>
+ *   <li>pawn structure: doubled, isolated and passed pawns. It only depends on the pawns,
+ *       so it is cached in a small table keyed by {@link ChessBoard#pawnKey()} and
+ *       computed again only when the pawns change</li>
+ * </ul>
+ * An instance holds the pawn cache and is meant for one search thread.
+ */
+public final class Evaluation {
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    private static final int PAWN_TABLE_ENTRIES = 1 << 12;
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+
+    // Packed middlegame and endgame weights, see PieceSquareTables.pack
+    private static final int DOUBLED_PAWN = PieceSquareTables.pack(-10, -20);
+    private static final int ISOLATED_PAWN = PieceSquareTables.pack(-10, -15);
+    private static final int[] PASSED_PAWN = { // by rank from the pawn's side
+        0, PieceSquareTables.pack(5, 10), PieceSquareTables.pack(10, 20), PieceSquareTables.pack(15, 35),
+        PieceSquareTables.pack(25, 55), PieceSquareTables.pack(40, 85), PieceSquareTables.pack(60, 120), 0
+    };
+    // Per square of mobility, counted from a typical number of squares for the piece
+    private static final int[] MOBILITY = {
+        0, PieceSquareTables.pack(4, 4), PieceSquareTables.pack(5, 5), PieceSquareTables.pack(2, 4), PieceSquareTables.pack(1, 2), 0
+    };
+    private static final int[] TYPICAL_MOBILITY = {0, 4, 6, 7, 13, 0};
+    private static final int[] KING_ATTACK_WEIGHT = {0, 2, 2, 3, 5, 0};
+    private static final int MAX_KING_DANGER = 400;
+    private static final int PAWN_SHIELD = 10; // middlegame bonus per pawn in front of the king
+
+    private static final long[] ADJACENT_FILES = new long[8];
+    private static final long[][] PASSED_MASK = new long[2][64]; // squares in front on the same and adjacent files
+    private static final long[][] SHIELD_MASK = new long[2][64]; // two ranks in front of the king, three files wide
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILE_A << (file - 1) : 0) | (file < 7 ? FILE_A << (file + 1) : 0);
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = ChessBoard.fileOf(square);
+            int rank = ChessBoard.rankOf(square);
+            long span = ADJACENT_FILES[file] | FILE_A << file;
+            long above = rank < 7 ? -1L << (8 * (rank + 1)) : 0;
+            long below = rank > 0 ? -1L >>> (8 * (8 - rank)) : 0;
+            PASSED_MASK[Piece.WHITE][square] = span & above;
+            PASSED_MASK[Piece.BLACK][square] = span & below;
+            for (int distance = 1; distance <= 2; distance++) {
+                if (rank + distance <= 7) SHIELD_MASK[Piece.WHITE][square] |= span & 0xFFL << (8 * (rank + distance));
+                if (rank - distance >= 0) SHIELD_MASK[Piece.BLACK][square] |= span & 0xFFL << (8 * (rank - distance));
+            }
+        }
+    }
+
+    // Pawn structure cache; a slot with key 0 holds the pawnless score 0, which is correct
+    private final long[] pawnKeys = new long[PAWN_TABLE_ENTRIES];
+    private final int[] pawnScores = new int[PAWN_TABLE_ENTRIES];
+    private long pawnProbes;
+    private long pawnHits;
+
+    /**
+     * Evaluate a position
+     * @param board The chess board
+     * @return score in centipawns, positive when the side to move is better
+     */
+    public int evaluate(ChessBoard board) {
+        int score = board.pieceSquareScore() + pawnStructure(board);
+
+        long occupied = board.occupied();
+        long whitePawnAttacks = pawnAttacks(board.pieces(Piece.WHITE, Piece.PAWN), Piece.WHITE);
+        long blackPawnAttacks = pawnAttacks(board.pieces(Piece.BLACK, Piece.PAWN), Piece.BLACK);
+        score += piecesScore(board, Piece.WHITE, occupied, blackPawnAttacks)
+            - piecesScore(board, Piece.BLACK, occupied, whitePawnAttacks);
+
+        int phase = Math.min(board.phase(), PieceSquareTables.MAX_PHASE);
+        int blended = (PieceSquareTables.middlegame(score) * phase
+            + PieceSquareTables.endgame(score) * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return board.sideToMove() == Piece.WHITE ? blended : -blended;
+    }
+
+    /**
+     * Score mobility of a side's pieces and the danger they put the enemy king in
+     * @return packed score from white's point of view if color is white, else from black's
+     */
+    private static int piecesScore(ChessBoard board, int color, long occupied, long enemyPawnAttacks) {
+        int enemyKing = board.kingSquare(color ^ 1);
+        long kingZone = Attacks.king(enemyKing) | 1L << enemyKing;
+        long reachable = ~board.occupancy(color) & ~enemyPawnAttacks;
+        int score = 0;
+        int attackers = 0;
+        int danger = 0;
+        for (int type = Piece.KNIGHT; type <= Piece.QUEEN; type++) {
+            long pieces = board.pieces(color, type);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long attacks = Attacks.of(type, color, square, occupied);
+                score += MOBILITY[type] * (Long.bitCount(attacks & reachable) - TYPICAL_MOBILITY[type]);
+                long zoneAttacks = attacks & kingZone;
+                if (zoneAttacks != 0) {
+                    attackers++;
+                    danger += KING_ATTACK_WEIGHT[type] * Long.bitCount(zoneAttacks);
+                }
+            }
+        }
+        // A lone attacker is rarely dangerous; more grow quadratically, mostly in the middlegame
+        if (attackers >= 2) {
+            score += PieceSquareTables.pack(Math.min(MAX_KING_DANGER, danger * danger / 4), 0);
+        }
+        // The enemy king's pawn shield counts against us
+        int shield = Long.bitCount(SHIELD_MASK[color ^ 1][enemyKing] & board.pieces(color ^ 1, Piece.PAWN));
+        score -= PieceSquareTables.pack(PAWN_SHIELD * Math.min(3, shield), 0);
+        return score;
+    }
+
+    private int pawnStructure(ChessBoard board) {
+        long key = board.pawnKey();
+        int index = (int) key & (PAWN_TABLE_ENTRIES - 1);
+        pawnProbes++;
+        if (pawnKeys[index] == key) {
+            pawnHits++;
+            return pawnScores[index];
+        }
+        long white = board.pieces(Piece.WHITE, Piece.PAWN);
+        long black = board.pieces(Piece.BLACK, Piece.PAWN);
+        int score = pawnScore(white, black, Piece.WHITE) - pawnScore(black, white, Piece.BLACK);
+        pawnKeys[index] = key;
+        pawnScores[index] = score;
+        return score;
+    }
+
+    private static int pawnScore(long ours, long theirs, int color) {
+        int score = 0;
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(ours & FILE_A << file);
+            if (count > 1) score += DOUBLED_PAWN * (count - 1);
+        }
+        for (long pawns = ours; pawns != 0; pawns &= pawns - 1) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            if ((ADJACENT_FILES[ChessBoard.fileOf(square)] & ours) == 0) score += ISOLATED_PAWN;
+            if ((PASSED_MASK[color][square] & theirs) == 0) {
+                int rank = ChessBoard.rankOf(square);
+                score += PASSED_PAWN[color == Piece.WHITE ? rank : 7 - rank];
+            }
+        }
+        return score;
+    }
+
+    private static long pawnAttacks(long pawns, int color) {
+        return color == Piece.WHITE
+            ? (pawns << 7 & ~FILE_H) | (pawns << 9 & ~FILE_A)
+            : (pawns >>> 9 & ~FILE_H) | (pawns >>> 7 & ~FILE_A);
+    }
+
+    /**
+     * Get how many pawn structure lookups were answered from the cache
+     * @return hits per probe since the instance was created, between 0 and 1
+     */
+    public double pawnHitRate() {
+        return pawnProbes > 0 ? (double) pawnHits / pawnProbes : 0;
+    }
+
+    /**
+     * @return pawn structure lookups since the instance was created
+     */
+    public long getPawnProbes() {
+        return pawnProbes;
+    }
+
+    /**
+     * @return pawn structure lookups answered from the cache
+     */
+    public long getPawnHits() {
+        return pawnHits;
+    }
+
+    /**
+     * Add up material and piece-square values by scanning every piece, which the board
+     * otherwise keeps up to date move by move; for checking and benchmarking that
+     * @param board The chess board
+     * @return packed score as {@link ChessBoard#pieceSquareScore()} returns it
+     */
+    public static int pieceSquareScoreFromScratch(ChessBoard board) {
+        int score = 0;
+        for (int code = 0; code < 12; code++) {
+            for (long pieces = board.pieces(code); pieces != 0; pieces &= pieces - 1) {
+                score += PieceSquareTables.value(code, Long.numberOfTrailingZeros(pieces));
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Check whether a side has any piece besides pawns and the king. Null-move pruning
+     * is unsafe without one because of zugzwang.
+     * @param board The chess board
+     * @param color side to check
+     * @return true if the side has a knight, bishop, rook or queen
+     */
+    public static boolean hasNonPawnMaterial(ChessBoard board, int color) {
+        return (board.occupancy(color) & ~board.pieces(color, Piece.PAWN) & ~board.pieces(color, Piece.KING)) != 0;
+    }
+}
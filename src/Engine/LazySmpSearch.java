@@ -0,0 +1,158 @@
+package Engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import Model.ChessBoard;
+import Model.TranspositionTable;
+
+/**
+ * Multi-threaded search (Lazy SMP).
+ *
+ * Every thread runs its own {@link AlphaBetaSearch} on its own copy of the board, and all
+ * of them share one lock-free {@link TranspositionTable}. The threads do not talk to each
+ * other: helpers fill the table with results the main thread then finds, which is where
+ * the speedup comes from. Half of the helpers start one iteration deeper so the threads
+ * do not all walk the same tree in lockstep.
+ *
+ * The calling thread is the main thread. Its result is returned, and the helpers are
+ * stopped as soon as it finishes.
+ */
+public class LazySmpSearch implements MoveStrategy {
+    private final TranspositionTable table;
+    private SearchLimits limits;
+    private SearchListener listener;
+    private Tablebases tablebases;
+    private AlphaBetaSearch[] searchers;
+    private ExecutorService helpers;
+
+    /**
+     * @param table transposition table shared by all threads
+     * @param limits when to stop
+     * @param threads number of search threads, including the calling thread
+     */
+    public LazySmpSearch(TranspositionTable table, SearchLimits limits, int threads) {
+        this.table = table;
+        this.limits = limits;
+        setThreads(threads);
+    }
+
+    /**
+     * Change the number of search threads; must not be called during a search
+     * @param threads number of search threads, including the calling thread
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        if (helpers != null) helpers.shutdownNow();
+        searchers = new AlphaBetaSearch[threads];
+        for (int i = 0; i < threads; i++) {
+            searchers[i] = new AlphaBetaSearch(table, limits);
+            searchers[i].setTablebases(tablebases);
+        }
+        searchers[0].setListener(listener);
+        helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int getThreads() {
+        return searchers.length;
+    }
+
+    public void setLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Listen to the iterations of the main thread
+     * @param listener the listener, or null
+     */
+    @Override
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+        searchers[0].setListener(listener);
+    }
+
+    /**
+     * Use endgame tables in every thread
+     * @param tablebases the tables, or null
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+        for (AlphaBetaSearch searcher : searchers) {
+            searcher.setTablebases(tablebases);
+        }
+    }
+
+    /**
+     * Ask a running search to stop; it returns the last completed iteration
+     */
+    @Override
+    public void stop() {
+        for (AlphaBetaSearch searcher : searchers) {
+            searcher.stop();
+        }
+    }
+
+    @Override
+    public int selectMove(ChessBoard board) {
+        return search(board, limits).getBestMove();
+    }
+
+    /**
+     * Search a position with all threads
+     * @param position The chess board; it is copied and left unchanged
+     * @param limits when the main thread stops
+     * @return result of the deepest iteration the main thread completed
+     */
+    public SearchResult search(ChessBoard position, SearchLimits limits) {
+        table.newSearch();
+        for (AlphaBetaSearch searcher : searchers) {
+            searcher.resetStop();
+        }
+        // Helpers only stop when the main thread is done
+        SearchLimits helperLimits = SearchLimits.infinite();
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 1; i < searchers.length; i++) {
+            AlphaBetaSearch helper = searchers[i];
+            int startDepth = 1 + (i & 1);
+            running.add(helpers.submit(() -> helper.runSearch(position, helperLimits, startDepth)));
+        }
+
+        SearchResult result = searchers[0].runSearch(position, limits, 1);
+
+        for (int i = 1; i < searchers.length; i++) {
+            searchers[i].stop();
+        }
+        for (Future<?> helper : running) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the nodes searched by all threads in the last search
+     * @return number of nodes
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (AlphaBetaSearch searcher : searchers) {
+            nodes += searcher.getNodes();
+        }
+        return nodes;
+    }
+}
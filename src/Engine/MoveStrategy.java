@@ -0,0 +1,31 @@
+package Engine;
+
+import Model.ChessBoard;
+
+/**
+ * A way of choosing a move for the side to move (Strategy pattern), used for
+ * computer opponents.
+ */
+public interface MoveStrategy {
+    /**
+     * Choose a move. The board is left unchanged.
+     * @param board The chess board
+     * @return the chosen packed move, or {@link Model.Move#NONE} if there is no legal move
+     */
+    int selectMove(ChessBoard board);
+
+    /**
+     * Ask a running {@link #selectMove} on another thread to return early. Strategies
+     * that answer at once need not do anything.
+     */
+    default void stop() {
+    }
+
+    /**
+     * Listen to the progress of {@link #selectMove}. Strategies without intermediate
+     * results never call the listener.
+     * @param listener the listener, or null
+     */
+    default void setListener(SearchListener listener) {
+    }
+}
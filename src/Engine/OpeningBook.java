@@ -0,0 +1,133 @@
+package Engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+
+/**
+ * Opening book in the layout of a Polyglot book: fixed-size entries sorted by position key,
+ * looked up by binary search in a memory-mapped file.
+ *
+ * <pre>
+ * bytes  0-7   position key ({@link ChessBoard#key()}, compared unsigned)
+ * bytes  8-9   move ({@link Move#toCompact(int)})
+ * bytes 10-11  weight (unsigned)
+ * bytes 12-15  number of games the move was played in
+ * </pre>
+ *
+ * Entries of one position are stored together, heaviest first. Unlike Polyglot, the key is
+ * this program's own Zobrist key, so books are made with {@code Tools.BookBuilder}. A move
+ * is picked at random with probability proportional to its weight; moves that are not
+ * legal in the position (after a key collision) are skipped.
+ *
+ * Probing reuses move buffers of the instance, so it allocates nothing; a book must be
+ * probed by one thread at a time.
+ */
+public class OpeningBook {
+    public static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer entries;
+    private final int size;
+    private final Random random = new Random();
+    private final MoveList legal = new MoveList();
+    private final MoveList probeMoves = new MoveList();
+    private final int[] probeWeights = new int[MoveList.CAPACITY];
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * Map a book file
+     * @param file the book
+     * @return the book
+     * @throws IOException if the file cannot be read or is larger than 2 GB
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() % ENTRY_BYTES != 0) {
+                throw new IOException("Not a book file: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Get the number of entries
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Pick a book move for the position, weighted by the entry weights
+     * @param board The chess board
+     * @return a legal move, or {@link Move#NONE} if the position is not in the book
+     */
+    public int probe(ChessBoard board) {
+        MoveList moves = probeMoves;
+        int[] weights = probeWeights;
+        int count = moves(board, moves, weights);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        if (total == 0) return Move.NONE;
+
+        long pick = (long) (random.nextDouble() * total);
+        for (int i = 0; i < count; i++) {
+            pick -= weights[i];
+            if (pick < 0) return moves.get(i);
+        }
+        return moves.get(count - 1);
+    }
+
+    /**
+     * Get the book moves of a position, heaviest first
+     * @param board The chess board
+     * @param moves buffer that is cleared and filled with the legal book moves
+     * @param weights filled with the weight of each move; needs room for {@link MoveList#CAPACITY}
+     * @return number of book moves
+     */
+    public int moves(ChessBoard board, MoveList moves, int[] weights) {
+        MoveGenerator.generateMoves(board, legal);
+        moves.clear();
+        long key = board.key();
+        for (int i = firstEntry(key); i < size && entries.getLong(i * ENTRY_BYTES) == key; i++) {
+            int offset = i * ENTRY_BYTES;
+            int move = Move.fromCompact(entries.getShort(offset + 8) & 0xFFFF, legal);
+            if (move == Move.NONE || moves.contains(move)) continue;
+            weights[moves.size()] = entries.getShort(offset + 10) & 0xFFFF;
+            moves.add(move);
+        }
+        return moves.size();
+    }
+
+    /**
+     * Binary search for the first entry whose key is not below a key
+     */
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(middle * ENTRY_BYTES), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
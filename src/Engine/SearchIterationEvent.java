@@ -0,0 +1,49 @@
+package Engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one completed iteration of an {@link AlphaBetaSearch}. Its
+ * duration is the time the iteration took.
+ */
+@Name("javachess.SearchIteration")
+@Label("Search Iteration")
+@Category({"JavaChess", "Search"})
+@Description("One completed iteration of iterative deepening")
+@StackTrace(false)
+class SearchIterationEvent extends jdk.jfr.Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Score")
+    @Description("Centipawns from the side to move's view; mate scores are near 31000")
+    int score;
+
+    @Label("Nodes")
+    @Description("Nodes searched by this iteration")
+    long nodes;
+
+    @Label("Total Nodes")
+    @Description("Nodes searched by this search so far")
+    long totalNodes;
+
+    @Label("Nodes per Second")
+    long nodesPerSecond;
+
+    @Label("Branching Factor")
+    @Description("Nodes of this iteration divided by the nodes of the one before")
+    double branchingFactor;
+
+    @Label("Transposition Hit Rate")
+    double transpositionHitRate;
+
+    @Label("Pawn Hash Hit Rate")
+    double pawnHashHitRate;
+
+    @Label("Best Move")
+    String bestMove;
+}
@@ -0,0 +1,57 @@
+package Engine;
+
+/**
+ * When a search has to stop: after a depth, a number of nodes or an amount of time,
+ * whichever comes first. A value of 0 means no limit of that kind.
+ */
+public class SearchLimits {
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    public SearchLimits(int depth, long nodes, long timeMillis) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(0, 0, timeMillis);
+    }
+
+    public static SearchLimits infinite() {
+        return new SearchLimits(0, 0, 0);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, timeMillis);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, timeMillis);
+    }
+
+    public SearchLimits withTime(long timeMillis) {
+        return new SearchLimits(depth, nodes, timeMillis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
@@ -0,0 +1,12 @@
+package Engine;
+
+/**
+ * Receives progress from a running search (Observer pattern).
+ */
+public interface SearchListener {
+    /**
+     * Called after every completed iteration of iterative deepening, on the search thread
+     * @param result result of the iteration
+     */
+    void onIteration(SearchResult result);
+}
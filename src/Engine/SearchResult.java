@@ -0,0 +1,84 @@
+package Engine;
+
+import Model.Move;
+
+/**
+ * The outcome of one completed search iteration: best move, score from the point of
+ * view of the side to move, principal variation and statistics.
+ */
+public class SearchResult {
+    private final int[] pv;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    public SearchResult(int[] pv, int score, int depth, long nodes, long timeMillis) {
+        this.pv = pv;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    public int getBestMove() {
+        return pv.length > 0 ? pv[0] : Move.NONE;
+    }
+
+    /**
+     * Get the expected reply to the best move
+     * @return the packed move, or {@link Move#NONE} if the principal variation is shorter
+     */
+    public int getPonderMove() {
+        return pv.length > 1 ? pv[1] : Move.NONE;
+    }
+
+    public int[] getPv() {
+        return pv;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return timeMillis > 0 ? nodes * 1000 / timeMillis : nodes * 1000;
+    }
+
+    /**
+     * Check whether the score is a forced mate
+     * @return true if the score is a mate score
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= AlphaBetaSearch.MATE_BOUND;
+    }
+
+    /**
+     * Get the number of moves to mate, negative when the side to move gets mated
+     * @return moves to mate, only meaningful when {@link #isMate()} is true
+     */
+    public int getMateIn() {
+        return score > 0 ? (AlphaBetaSearch.MATE - score + 1) / 2 : -(AlphaBetaSearch.MATE + score) / 2;
+    }
+
+    public String pvString() {
+        StringBuilder text = new StringBuilder();
+        for (int move : pv) {
+            if (text.length() > 0) text.append(' ');
+            text.append(Move.toString(move));
+        }
+        return text.toString();
+    }
+}
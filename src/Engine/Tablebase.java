@@ -0,0 +1,214 @@
+package Engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import Model.ChessBoard;
+import Model.Piece;
+
+/**
+ * Endgame table for one material balance, such as "KQvK" or "KRvKP", with the exact
+ * result of every position.
+ *
+ * The table is named strongest side first and stored with that side as white; positions
+ * where the strong side is black are probed with colors and ranks mirrored. A position
+ * is indexed by the squares of its pieces in table order (white king, white pieces
+ * from queen to pawn, then the same for black) and the side to move:
+ * <pre>
+ * index = side + 2 * (square0 + 64 * square1 + 64^2 * square2 + ...)
+ * </pre>
+ * Every position has exactly one index; equal pieces are taken in square order. Castling
+ * rights and en-passant squares are not part of the index.
+ *
+ * Each index holds one byte: {@link #DRAW} (0), {@link #INVALID} (255) for indices
+ * that are no legal position, or the distance to mate in plies plus one. An odd distance
+ * means the side to move mates, an even one that it is mated.
+ */
+public final class Tablebase {
+    public static final int DRAW = 0;
+    public static final int INVALID = 255;
+
+    private static final String TYPE_LETTERS = "PNBRQK";
+    private static final int[] TYPE_ORDER = {Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT, Piece.PAWN};
+
+    private final String name;
+    private final int[] codes; // piece code of each slot
+    private final ByteBuffer values;
+
+    /**
+     * @param name material of the table, for example "KQvK"
+     * @param values one byte per index, see {@link #size(String)}
+     */
+    public Tablebase(String name, ByteBuffer values) {
+        this.name = name;
+        this.codes = pieceCodes(name);
+        this.values = values;
+        if (values.capacity() != size(name)) {
+            throw new IllegalArgumentException("Table " + name + " needs " + size(name) + " bytes");
+        }
+    }
+
+    /**
+     * Map a table file; the file name without extension is the material
+     * @param file the table
+     * @return the table
+     * @throws IOException if the file cannot be read
+     */
+    public static Tablebase open(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        String name = fileName.substring(0, fileName.indexOf('.'));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Tablebase(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the piece code of each slot of the index, as stored (strong side white)
+     * @return piece codes; must not be changed
+     */
+    public int[] pieceCodes() {
+        return codes;
+    }
+
+    /**
+     * Get the value of an index
+     * @param index position index
+     * @return DRAW, INVALID, or distance to mate plus one
+     */
+    public int get(int index) {
+        return values.get(index) & 0xFF;
+    }
+
+    /**
+     * Get the value of a position of this material
+     * @param board The chess board
+     * @param mirrored true if the strong side of the table is black on the board
+     * @return DRAW, or distance to mate plus one
+     */
+    public int probe(ChessBoard board, boolean mirrored) {
+        return get(index(board, mirrored));
+    }
+
+    /**
+     * Index a position of this material
+     * @param board The chess board
+     * @param mirrored true if the strong side of the table is black on the board
+     * @return the index
+     */
+    public int index(ChessBoard board, boolean mirrored) {
+        int index = 0;
+        int slot = 0;
+        while (slot < codes.length) {
+            int code = codes[slot];
+            long pieces = board.pieces(mirrored ? Piece.code(Piece.colorOf(code) ^ 1, Piece.typeOf(code)) : code);
+            // Reversing the bytes flips the ranks and keeps equal pieces in square order
+            if (mirrored) pieces = Long.reverseBytes(pieces);
+            while (pieces != 0) {
+                index |= Long.numberOfTrailingZeros(pieces) << (1 + 6 * slot++);
+                pieces &= pieces - 1;
+            }
+        }
+        return index | (mirrored ? board.sideToMove() ^ 1 : board.sideToMove());
+    }
+
+    /**
+     * Get the number of indices of a table
+     * @param name material, for example "KQvK"
+     * @return 2 * 64^pieces
+     */
+    public static int size(String name) {
+        return 2 << (6 * (name.length() - 1));
+    }
+
+    /**
+     * Get the piece code of each index slot of a table
+     * @param name material, for example "KRvKP"
+     * @return piece codes, white first
+     */
+    public static int[] pieceCodes(String name) {
+        int split = name.indexOf('v');
+        if (split < 1 || name.charAt(0) != 'K' || name.charAt(split + 1) != 'K') {
+            throw new IllegalArgumentException("Bad table name: " + name);
+        }
+        int[] codes = new int[name.length() - 1];
+        int slot = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (i == split) continue;
+            int type = TYPE_LETTERS.indexOf(name.charAt(i));
+            if (type < 0) throw new IllegalArgumentException("Bad table name: " + name);
+            codes[slot++] = Piece.code(i < split ? Piece.WHITE : Piece.BLACK, type);
+        }
+        return codes;
+    }
+
+    /**
+     * Get the pieces of one side as a key: three bits per piece type counting its pieces
+     * @param board The chess board
+     * @param color the side
+     * @return material key of the side
+     */
+    public static int materialKey(ChessBoard board, int color) {
+        int key = 0;
+        for (int type = Piece.PAWN; type < Piece.KING; type++) {
+            key |= Long.bitCount(board.pieces(color, type)) << (3 * type);
+        }
+        return key;
+    }
+
+    /**
+     * Name the table for a material balance, strongest side first
+     * @param white material key of white
+     * @param black material key of black
+     * @return the table name, for example "KQvK"
+     */
+    public static String name(int white, int black) {
+        if (strength(white) < strength(black) || (strength(white) == strength(black) && white < black)) {
+            int swap = white;
+            white = black;
+            black = swap;
+        }
+        return sideName(white) + "v" + sideName(black);
+    }
+
+    private static String sideName(int key) {
+        StringBuilder name = new StringBuilder("K");
+        for (int type : TYPE_ORDER) {
+            for (int n = (key >>> (3 * type)) & 7; n > 0; n--) {
+                name.append(TYPE_LETTERS.charAt(type));
+            }
+        }
+        return name.toString();
+    }
+
+    private static int strength(int key) {
+        int strength = 0;
+        for (int type = Piece.PAWN; type < Piece.KING; type++) {
+            strength += ((key >>> (3 * type)) & 7) * Evaluation.PIECE_VALUES[type];
+        }
+        return strength;
+    }
+
+    public static boolean isWin(int value) {
+        return value != DRAW && value != INVALID && (value & 1) == 0;
+    }
+
+    public static boolean isLoss(int value) {
+        return value != DRAW && value != INVALID && (value & 1) == 1;
+    }
+
+    /**
+     * Get the distance to mate of a won or lost value
+     * @param value table value
+     * @return plies until mate
+     */
+    public static int distance(int value) {
+        return value - 1;
+    }
+}
@@ -0,0 +1,165 @@
+package Engine;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.Piece;
+
+/**
+ * A set of {@link Tablebase}s, probed by position.
+ *
+ * A probe finds the table of the position's material in a small open-addressed table
+ * keyed by the material key and reads one byte, so it takes constant time and allocates
+ * nothing. Kings alone are a draw without a table.
+ */
+public class Tablebases {
+    public static final int NOT_FOUND = -1;
+
+    // Open addressing with linear probing; keys are the material key plus one, 0 is a free slot
+    private int[] keys = new int[16];
+    private Tablebase[] tables = new Tablebase[16];
+    private int count;
+    private int maxPieces = 2;
+
+    /**
+     * Map every table file (*.tb) of a directory
+     * @param directory directory holding the tables
+     * @return the tables
+     * @throws IOException if a table cannot be read
+     */
+    public static Tablebases load(Path directory) throws IOException {
+        Tablebases tablebases = new Tablebases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.tb")) {
+            for (Path file : files) {
+                tablebases.add(Tablebase.open(file));
+            }
+        }
+        return tablebases;
+    }
+
+    public void add(Tablebase table) {
+        int white = 0;
+        int black = 0;
+        for (int code : table.pieceCodes()) {
+            int type = Piece.typeOf(code);
+            if (type == Piece.KING) continue;
+            if (Piece.colorOf(code) == Piece.WHITE) {
+                white += 1 << (3 * type);
+            } else {
+                black += 1 << (3 * type);
+            }
+        }
+        put(white << 15 | black, table);
+        maxPieces = Math.max(maxPieces, table.pieceCodes().length);
+    }
+
+    private void put(int material, Tablebase table) {
+        if (2 * (count + 1) > keys.length) {
+            int[] oldKeys = keys;
+            Tablebase[] oldTables = tables;
+            keys = new int[oldKeys.length * 2];
+            tables = new Tablebase[oldKeys.length * 2];
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) put(oldKeys[i] - 1, oldTables[i]);
+            }
+        }
+        int slot = slot(material);
+        if (keys[slot] == 0) count++;
+        keys[slot] = material + 1;
+        tables[slot] = table;
+    }
+
+    /**
+     * Find the table of a material balance
+     * @param material white material key << 15 | black material key
+     * @return the table, or null
+     */
+    private Tablebase get(int material) {
+        return tables[slot(material)];
+    }
+
+    /**
+     * Get the slot holding a material key, or the free slot where it would go
+     */
+    private int slot(int material) {
+        int mask = keys.length - 1;
+        int slot = (material * 0x9E3779B1 >>> 16) & mask;
+        while (keys[slot] != 0 && keys[slot] != material + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Get the largest number of pieces, kings included, of any table
+     * @return number of pieces
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Look up a position
+     * @param board The chess board
+     * @return {@link Tablebase#DRAW}, the distance to mate plus one (see {@link Tablebase}),
+     *         or NOT_FOUND if there is no table for the position or it has castling rights
+     *         or an en-passant square, which the tables leave out
+     */
+    public int probe(ChessBoard board) {
+        int pieces = Long.bitCount(board.occupied());
+        if (pieces > maxPieces || board.castlingRights() != 0 || board.enPassantSquare() != ChessBoard.NO_SQUARE) {
+            return NOT_FOUND;
+        }
+        if (pieces == 2) return Tablebase.DRAW;
+
+        int white = Tablebase.materialKey(board, Piece.WHITE);
+        int black = Tablebase.materialKey(board, Piece.BLACK);
+        Tablebase table = get(white << 15 | black);
+        if (table != null) return table.probe(board, false);
+        table = get(black << 15 | white);
+        if (table != null) return table.probe(board, true);
+        return NOT_FOUND;
+    }
+
+    /**
+     * Pick the move that wins fastest, draws, or loses slowest
+     * @param board The chess board; it is left as it was
+     * @return the move, or {@link Move#NONE} if the position or one of its successors is
+     *         not in the tables or there is no legal move
+     */
+    public int bestMove(ChessBoard board) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateMoves(board, moves);
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            int value = probe(board);
+            board.unmakeMove();
+            if (value == NOT_FOUND) return Move.NONE;
+
+            // Rank by the opponent's value: their loss is best, sooner the better
+            int rank;
+            if (Tablebase.isLoss(value)) {
+                rank = 1000 - Tablebase.distance(value);
+            } else if (Tablebase.isWin(value)) {
+                rank = -1000 + Tablebase.distance(value);
+            } else {
+                rank = 0;
+            }
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+}
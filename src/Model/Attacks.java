@@ -0,0 +1,264 @@
+package Model;
+
+/**
+ * Precomputed attack tables.
+ *
+ * Knight, king and pawn attacks come from 64-entry tables. Rook and bishop attacks are
+ * looked up with magic bitboards: the relevant occupancy of a square is multiplied by a
+ * magic number and the top bits of the product index a table of attack sets built once
+ * when the class is loaded. A queen is the union of both.
+ *
+ * Building the tables is timed against {@link #INIT_BUDGET_NANOS}; a warning is printed
+ * if class loading takes longer than that.
+ */
+public final class Attacks {
+    public static final long INIT_BUDGET_NANOS = 50_000_000L; // 50 ms
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE = new long[102400];
+    private static final long[] BISHOP_TABLE = new long[5248];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_JUMPS = {
+        {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}
+    };
+    private static final int[][] KING_STEPS = {
+        {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+    };
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+    // Found offline with a seeded random search; each maps every relevant occupancy without harmful collisions
+    private static final long[] ROOK_MAGICS = {
+        0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+        0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+        0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+        0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+        0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+        0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+        0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+        0x0442000A00049020L, 0x2100040080020080L, 0x0800120400900148L, 0x0010040A00128541L,
+        0x2800804000800030L, 0x1010002000400041L, 0x4000200011004100L, 0x0610008410800800L,
+        0x0400802402800800L, 0xC100020080800400L, 0x0002000802000401L, 0x0182085882000401L,
+        0x0220204000808000L, 0x2860100040024022L, 0x0001002004110040L, 0x99101042000A0020L,
+        0x0004080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+        0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+        0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+        0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+        0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L
+    };
+    private static final long[] BISHOP_MAGICS = {
+        0xA010041108003100L, 0x006082020A002900L, 0x6810010619200000L, 0x08281A0520000408L,
+        0x0001104001000400L, 0x0018901008048400L, 0x00040A0210245280L, 0x000200210808A402L,
+        0x9140048410821200L, 0x0800091010820041L, 0x20504804832202C0L, 0x0100091401081000L,
+        0x8021011140000012L, 0x0810020804450400L, 0x208B0542109008A2L, 0x0080084A08040204L,
+        0x0040E2A80811244CL, 0x2505022008008108L, 0x0430220100420040L, 0x010A040420220040L,
+        0x1105000290400000L, 0x0093001200822120L, 0x4000A62048043004L, 0x280120048A015004L,
+        0x006090002A020814L, 0x44042000240800D0L, 0x01102800040A4400L, 0x1004080080220040L,
+        0x0001001011004024L, 0x0010044000805040L, 0x0914041200820100L, 0x0004821012821480L,
+        0x0024040500C05021L, 0x0088611002080200L, 0x0116080A00040020L, 0x4000020080080080L,
+        0x2450450140840040L, 0x0000880201484100L, 0x0222020404020092L, 0x8081110600002E00L,
+        0x2842101105000801L, 0x1100809008001025L, 0x00020202221C0400L, 0x0422014022009020L,
+        0x0210046102100C00L, 0xC004008082029102L, 0x00AA461801101200L, 0x0404080080201108L,
+        0x020542108C205002L, 0x0410544804100100L, 0x0040910841100000L, 0x0400200042021100L,
+        0x00004204850400C0L, 0x0200100410A42102L, 0x1040020801210102L, 0x0805040410420000L,
+        0x2884804130100200L, 0x800C262201242000L, 0x1058000194108800L, 0x0014221054420204L,
+        0x0104000012A02200L, 0x0200881003300100L, 0x0140400202840100L, 0x0402020801010201L
+    };
+
+    private static final long INIT_NANOS;
+
+    static {
+        long start = System.nanoTime();
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = stepAttacks(square, KNIGHT_JUMPS);
+            KING[square] = stepAttacks(square, KING_STEPS);
+            PAWN[Piece.WHITE][square] = stepAttacks(square, new int[][]{{-1, 1}, {1, 1}});
+            PAWN[Piece.BLACK][square] = stepAttacks(square, new int[][]{{-1, -1}, {1, -1}});
+        }
+        initSliders(ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_TABLE);
+        initSliders(BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS, BISHOP_TABLE);
+        initLines();
+        INIT_NANOS = System.nanoTime() - start;
+        if (INIT_NANOS > INIT_BUDGET_NANOS) {
+            System.err.println("Attack tables took " + INIT_NANOS / 1_000_000 + " ms to build, budget is "
+                + INIT_BUDGET_NANOS / 1_000_000 + " ms");
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * Get the squares a pawn attacks
+     * @param color color of the pawn
+     * @param square square of the pawn
+     * @return bitboard of the attacked squares
+     */
+    public static long pawn(int color, int square) {
+        return PAWN[color][square];
+    }
+
+    public static long rook(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square]
+            + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishop(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square]
+            + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /**
+     * Get the squares a piece attacks
+     * @param type piece type
+     * @param color piece color, only used for pawns
+     * @param square square of the piece
+     * @param occupied bitboard of all pieces
+     * @return bitboard of the attacked squares
+     */
+    public static long of(int type, int color, int square, long occupied) {
+        switch (type) {
+            case Piece.PAWN: return pawn(color, square);
+            case Piece.KNIGHT: return knight(square);
+            case Piece.BISHOP: return bishop(square, occupied);
+            case Piece.ROOK: return rook(square, occupied);
+            case Piece.QUEEN: return queen(square, occupied);
+            default: return king(square);
+        }
+    }
+
+    /**
+     * Get the squares strictly between two squares
+     * @param from first square
+     * @param to second square
+     * @return bitboard of the squares between, or 0 if the squares do not share a line
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Get the whole rank, file or diagonal through two squares
+     * @param from first square
+     * @param to second square
+     * @return bitboard of the line including both squares, or 0 if they do not share one
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Get the time it took to build the tables
+     * @return build time in nanoseconds
+     */
+    public static long initNanos() {
+        return INIT_NANOS;
+    }
+
+    private static long stepAttacks(int square, int[][] steps) {
+        int x = ChessBoard.fileOf(square);
+        int y = ChessBoard.rankOf(square);
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int newX = x + step[0];
+            int newY = y + step[1];
+            if (newX >= 0 && newX < 8 && newY >= 0 && newY < 8) {
+                attacks |= 1L << ChessBoard.square(newX, newY);
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walk the rays of a slider until they hit a piece or the edge
+     * @param square square of the slider
+     * @param occupied bitboard of blocking pieces
+     * @param directions ray directions
+     * @param relevantOnly leave out the last square of each ray, giving the occupancy mask
+     * @return bitboard of the reached squares
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions, boolean relevantOnly) {
+        int x = ChessBoard.fileOf(square);
+        int y = ChessBoard.rankOf(square);
+        long attacks = 0L;
+        for (int[] dir : directions) {
+            for (int newX = x + dir[0], newY = y + dir[1];
+                 newX >= 0 && newX < 8 && newY >= 0 && newY < 8;
+                 newX += dir[0], newY += dir[1]) {
+                int nextX = newX + dir[0];
+                int nextY = newY + dir[1];
+                if (relevantOnly && (nextX < 0 || nextX > 7 || nextY < 0 || nextY > 7)) break;
+                long bit = 1L << ChessBoard.square(newX, newY);
+                attacks |= bit;
+                if ((occupied & bit) != 0) break;
+            }
+        }
+        return attacks;
+    }
+
+    private static void initSliders(int[][] directions, long[] magics, long[] masks, int[] shifts, int[] offsets, long[] table) {
+        int offset = 0;
+        for (int square = 0; square < 64; square++) {
+            long mask = slidingAttacks(square, 0L, directions, true);
+            int bits = Long.bitCount(mask);
+            masks[square] = mask;
+            shifts[square] = 64 - bits;
+            offsets[square] = offset;
+
+            // Enumerate every subset of the mask (carry-rippler) and store its attack set
+            long subset = 0L;
+            do {
+                int index = offset + (int) ((subset * magics[square]) >>> shifts[square]);
+                long attacks = slidingAttacks(square, subset, directions, false);
+                if (table[index] != 0L && table[index] != attacks) {
+                    throw new IllegalStateException("Bad magic for square " + square);
+                }
+                table[index] = attacks;
+                subset = (subset - mask) & mask;
+            } while (subset != 0L);
+            offset += 1 << bits;
+        }
+    }
+
+    private static void initLines() {
+        for (int from = 0; from < 64; from++) {
+            long rookRays = rook(from, 0L);
+            long bishopRays = bishop(from, 0L);
+            for (int to = 0; to < 64; to++) {
+                long target = 1L << to;
+                long ends = (1L << from) | target;
+                if ((rookRays & target) != 0) {
+                    LINE[from][to] = (rookRays & rook(to, 0L)) | ends;
+                    BETWEEN[from][to] = rook(from, target) & rook(to, 1L << from);
+                } else if ((bishopRays & target) != 0) {
+                    LINE[from][to] = (bishopRays & bishop(to, 0L)) | ends;
+                    BETWEEN[from][to] = bishop(from, target) & bishop(to, 1L << from);
+                }
+            }
+        }
+    }
+}
@@ -1,68 +1,854 @@
 package Model;
 
+import java.util.Arrays;
+
+/**
+ * Represents the chess board.
+ *
+ * The position is stored as bitboards: one 64-bit occupancy per piece type and color,
+ * where bit {@code y * 8 + x} is set when a piece stands on square (x, y). White starts on
+ * rows 0 and 1, black on rows 6 and 7. A 64-entry mailbox of piece codes mirrors the
+ * bitboards so a single square can be read without scanning, and side to move, castling
+ * rights, the en-passant square and the move clocks complete the position. A 64-bit
+ * Zobrist key (see {@link Zobrist}) identifying the position is updated with every move.
+ *
+ * {@link #getPieceAt(int, int)} is kept as a compatibility view that returns the shared
+ * {@link ChessPiece} of the piece code.
+ */
 public class ChessBoard {
-    private ChessPiece[][] board;
+    public static final int NO_SQUARE = -1;
+
+    public static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private final long[] pieces = new long[12]; // one bitboard per colored piece
+    private final long[] colors = new long[2]; // occupancy per color
+    private long occupied;
+    private final byte[] mailbox = new byte[64];
+
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+
+    private long key; // Zobrist key of the position
+    private long pawnKey; // Zobrist key of the pawns only, for caching pawn structure scores
+    private int pieceSquareScore; // packed material and piece-square score, see PieceSquareTables
+    private int phase; // game phase from the pieces left, see PieceSquareTables
+    private final RepetitionTable repetitions = new RepetitionTable();
+
+    private long checkers; // pieces giving check to the side to move
+    private long pinned; // pieces of the side to move pinned to their king
+
+    // Position as last published for other threads; replaced, never changed
+    private volatile PositionSnapshot snapshot;
+
+    // Legal moves of the position with key legalMovesKey, created on first use
+    private MoveList legalMoves;
+    private long legalMovesKey;
+    private boolean legalMovesValid;
+    private long legalMovesLookups; // since the board was created, read by its owner
+    private long legalMovesHits;
+
+    // Undo stack, one entry per move made; grown on demand
+    private int ply;
+    private int[] undoMoves = new int[16];
+    private long[] undoStates = new long[16]; // castling rights, en-passant square and halfmove clock
+    private long[] undoKeys = new long[16];
+    private long[] undoCheckers = new long[16];
+    private long[] undoPinned = new long[16];
 
     public ChessBoard() {
-        board = new ChessPiece[8][8];
         initializeBoard();
+        publish();
+    }
+
+    /**
+     * Create a board from a FEN string
+     * @param fen position in Forsyth-Edwards Notation
+     * @throws IllegalArgumentException if the FEN cannot be parsed
+     */
+    public ChessBoard(String fen) {
+        setFen(fen);
+    }
+
+    /**
+     * Create an independent copy of a board, including its move history, so the copy can be
+     * searched on another thread
+     * @param other board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        pieceSquareScore = other.pieceSquareScore;
+        phase = other.phase;
+        repetitions.copyFrom(other.repetitions);
+        checkers = other.checkers;
+        pinned = other.pinned;
+
+        ply = other.ply;
+        undoMoves = other.undoMoves.clone();
+        undoStates = other.undoStates.clone();
+        undoKeys = other.undoKeys.clone();
+        undoCheckers = other.undoCheckers.clone();
+        undoPinned = other.undoPinned.clone();
+        snapshot = other.snapshot;
     }
 
     private void initializeBoard() {
+        clear();
+
         // Set up pawns
         for (int col = 0; col < 8; col++) {
-            board[col][1] = new ChessPiece("pawn", "white");
-            board[col][6] = new ChessPiece("pawn", "black");
+            putPiece(Piece.code(Piece.WHITE, Piece.PAWN), square(col, 1));
+            putPiece(Piece.code(Piece.BLACK, Piece.PAWN), square(col, 6));
+        }
+
+        // Set up the back ranks
+        int[] backRank = {Piece.ROOK, Piece.KNIGHT, Piece.BISHOP, Piece.QUEEN, Piece.KING, Piece.BISHOP, Piece.KNIGHT, Piece.ROOK};
+        for (int col = 0; col < 8; col++) {
+            putPiece(Piece.code(Piece.WHITE, backRank[col]), square(col, 0));
+            putPiece(Piece.code(Piece.BLACK, backRank[col]), square(col, 7));
+        }
+
+        castlingRights = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        key ^= Zobrist.castling(0) ^ Zobrist.castling(castlingRights);
+        updateCheckInfo();
+        repetitions.increment(key);
+    }
+
+    /**
+     * Replace the position with one given in Forsyth-Edwards Notation. The halfmove clock
+     * and fullmove number may be left out. The undo stack is emptied.
+     * @param fen position in Forsyth-Edwards Notation
+     * @throws IllegalArgumentException if the FEN cannot be parsed
+     */
+    public void setFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least 4 fields: " + fen);
         }
-        
-        // Set up rooks
-        board[0][0] = new ChessPiece("rook", "white");
-        board[7][0] = new ChessPiece("rook", "white");
-        board[0][7] = new ChessPiece("rook", "black");
-        board[7][7] = new ChessPiece("rook", "black");
+        clear();
 
-        // Set up knights
-        board[1][0] = new ChessPiece("knight", "white");
-        board[6][0] = new ChessPiece("knight", "white");
-        board[1][7] = new ChessPiece("knight", "black");
-        board[6][7] = new ChessPiece("knight", "black");
+        int x = 0;
+        int y = 7;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (x != 8 || y == 0) throw new IllegalArgumentException("Bad rank in FEN: " + fen);
+                x = 0;
+                y--;
+            } else if (c >= '1' && c <= '8') {
+                x += c - '0';
+            } else {
+                int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+                if (type < 0 || x > 7) throw new IllegalArgumentException("Bad piece '" + c + "' in FEN: " + fen);
+                putPiece(Piece.code(Character.isUpperCase(c) ? Piece.WHITE : Piece.BLACK, type), square(x, y));
+                x++;
+            }
+            if (x > 8) throw new IllegalArgumentException("Bad rank in FEN: " + fen);
+        }
+        if (x != 8 || y != 0) throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
 
-        // Set up bishops
-        board[2][0] = new ChessPiece("bishop", "white");
-        board[5][0] = new ChessPiece("bishop", "white");
-        board[2][7] = new ChessPiece("bishop", "black");
-        board[5][7] = new ChessPiece("bishop", "black");
+        int side;
+        if (fields[1].equals("w")) {
+            side = Piece.WHITE;
+        } else if (fields[1].equals("b")) {
+            side = Piece.BLACK;
+        } else {
+            throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+        }
 
-        // Set up queens
-        board[4][0] = new ChessPiece("queen", "white");
-        board[4][7] = new ChessPiece("queen", "black");
+        int castling = 0;
+        if (!fields[2].equals("-")) {
+            for (int i = 0; i < fields[2].length(); i++) {
+                int right = "KQkq".indexOf(fields[2].charAt(i));
+                if (right < 0) throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+                castling |= 1 << right;
+            }
+        }
 
-        // Set up kings
-        board[3][0] = new ChessPiece("king", "white");
-        board[3][7] = new ChessPiece("king", "black");
+        int enPassant = NO_SQUARE;
+        if (!fields[3].equals("-")) {
+            if (fields[3].length() != 2) throw new IllegalArgumentException("Bad en-passant square in FEN: " + fen);
+            int file = fields[3].charAt(0) - 'a';
+            int rank = fields[3].charAt(1) - '1';
+            if (file < 0 || file > 7 || (rank != 2 && rank != 5)) {
+                throw new IllegalArgumentException("Bad en-passant square in FEN: " + fen);
+            }
+            enPassant = square(file, rank);
+        }
+
+        int halfmove = 0;
+        int fullmove = 1;
+        try {
+            if (fields.length > 4) halfmove = Integer.parseInt(fields[4]);
+            if (fields.length > 5) fullmove = Integer.parseInt(fields[5]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad move counters in FEN: " + fen, e);
+        }
+
+        try {
+            finishSetup(side, castling, enPassant, halfmove, fullmove);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage() + " in FEN: " + fen);
+        }
+        publish();
+    }
+
+    /**
+     * Replace the position with a list of pieces, without castling rights or en-passant
+     * square. The undo stack is emptied.
+     * @param codes piece code of each piece
+     * @param squares square of each piece
+     * @param count number of pieces
+     * @param side side to move
+     * @throws IllegalArgumentException if the position is not valid
+     */
+    public void setPosition(int[] codes, int[] squares, int count, int side) {
+        beginSetup();
+        for (int i = 0; i < count; i++) {
+            if (mailbox[squares[i]] != Piece.EMPTY) {
+                throw new IllegalArgumentException("Two pieces on " + Move.squareName(squares[i]));
+            }
+            putPiece(codes[i], squares[i]);
+        }
+        finishSetup(side, 0, NO_SQUARE, 0, 1);
+    }
+
+    /**
+     * Empty the board so a position can be set up with {@link #putPiece(int, int)} and
+     * {@link #finishSetup(int, int, int, int, int)}, without going through FEN text
+     */
+    void beginSetup() {
+        clear();
     }
 
+    /**
+     * Complete a position whose pieces have been placed after {@link #beginSetup()}
+     * @param side side to move
+     * @param castling castling rights
+     * @param enPassant en-passant square, or {@link #NO_SQUARE}
+     * @param halfmove halfmove clock
+     * @param fullmove fullmove number
+     * @throws IllegalArgumentException if the position is not valid
+     */
+    void finishSetup(int side, int castling, int enPassant, int halfmove, int fullmove) {
+        if (Long.bitCount(pieces(Piece.WHITE, Piece.KING)) != 1 || Long.bitCount(pieces(Piece.BLACK, Piece.KING)) != 1) {
+            throw new IllegalArgumentException("Position needs one king per side");
+        }
+        sideToMove = side;
+        castlingRights = castling;
+        enPassantSquare = enPassant;
+        halfmoveClock = halfmove;
+        fullmoveNumber = Math.max(1, fullmove);
+
+        key ^= Zobrist.castling(0) ^ Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        if (sideToMove == Piece.BLACK) key ^= Zobrist.blackToMove();
+        if (isSquareAttacked(kingSquare(sideToMove ^ 1), sideToMove)) {
+            throw new IllegalArgumentException("Side not to move is in check");
+        }
+        updateCheckInfo();
+        repetitions.increment(key);
+    }
+
+    /**
+     * Write the position in Forsyth-Edwards Notation
+     * @return the FEN string
+     */
+    public String toFen() {
+        return toEpd() + " " + halfmoveClock + " " + fullmoveNumber;
+    }
+
+    /**
+     * Write the position as the four position fields of an EPD record, which is FEN
+     * without the move counters
+     * @return the EPD position fields
+     */
+    public String toEpd() {
+        StringBuilder epd = new StringBuilder(80);
+        for (int y = 7; y >= 0; y--) {
+            int empty = 0;
+            for (int x = 0; x < 8; x++) {
+                int code = mailbox[square(x, y)];
+                if (code == Piece.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) epd.append(empty);
+                empty = 0;
+                char c = "pnbrqk".charAt(Piece.typeOf(code));
+                epd.append(Piece.colorOf(code) == Piece.WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) epd.append(empty);
+            if (y > 0) epd.append('/');
+        }
+
+        epd.append(sideToMove == Piece.WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            epd.append('-');
+        } else {
+            for (int right = 0; right < 4; right++) {
+                if ((castlingRights & (1 << right)) != 0) epd.append("KQkq".charAt(right));
+            }
+        }
+        epd.append(' ').append(enPassantSquare == NO_SQUARE ? "-" : Move.squareName(enPassantSquare));
+        return epd.toString();
+    }
+
+    private void clear() {
+        Arrays.fill(pieces, 0L);
+        colors[Piece.WHITE] = 0L;
+        colors[Piece.BLACK] = 0L;
+        occupied = 0L;
+        Arrays.fill(mailbox, (byte) Piece.EMPTY);
+        sideToMove = Piece.WHITE;
+        castlingRights = 0;
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = Zobrist.castling(0);
+        pawnKey = 0L;
+        pieceSquareScore = 0;
+        phase = 0;
+        repetitions.clear();
+        ply = 0;
+        legalMovesValid = false;
+    }
+
+    public static int square(int x, int y) {
+        return (y << 3) | x;
+    }
+
+    public static int fileOf(int square) {
+        return square & 7;
+    }
+
+    public static int rankOf(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Get the piece on a square as a {@link ChessPiece}
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the piece, or null if the square is empty or off the board
+     */
     public ChessPiece getPieceAt(int x, int y) {
-        return board[x][y];
+        if (x < 0 || x > 7 || y < 0 || y > 7) return null;
+        int code = mailbox[square(x, y)];
+        return code == Piece.EMPTY ? null : ChessPiece.of(code);
+    }
+
+    /**
+     * Get the piece code on a square
+     * @param square square index (y * 8 + x)
+     * @return piece code, or {@link Piece#EMPTY}
+     */
+    public int pieceOn(int square) {
+        return mailbox[square];
+    }
+
+    /**
+     * Get the bitboard of one colored piece
+     * @param code piece code
+     * @return bitboard of the squares holding that piece
+     */
+    public long pieces(int code) {
+        return pieces[code];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[Piece.code(color, type)];
+    }
+
+    public long occupancy(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Get the Zobrist key of the position
+     * @return 64-bit key, equal for equal positions
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Get the Zobrist key of the pawns alone, so pawn structure scores can be cached
+     * @return 64-bit key, equal for equal pawn placements
+     */
+    public long pawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Get the material and piece-square score, updated as pieces are put and removed
+     * @return packed middlegame and endgame score from white's point of view, see
+     *         {@link PieceSquareTables}
+     */
+    public int pieceSquareScore() {
+        return pieceSquareScore;
+    }
+
+    /**
+     * Get the game phase, from {@link PieceSquareTables#MAX_PHASE} with all pieces on the
+     * board down to 0 with only kings and pawns
+     * @return the phase; can exceed the maximum after promotions
+     */
+    public int phase() {
+        return phase;
+    }
+
+    /**
+     * Get how often the current position has occurred in this game, counting the current one.
+     * This is a single hash table probe.
+     * @return number of occurrences
+     */
+    public int repetitionCount() {
+        return repetitions.count(key);
+    }
+
+    public boolean isThreefoldRepetition() {
+        return repetitionCount() >= 3;
+    }
+
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    public int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[Piece.code(color, Piece.KING)]);
+    }
+
+    /**
+     * Get every piece, of either color, that attacks a square. The query works backwards
+     * from the square: a knight attacks it if a knight stands a knight jump away, a rook if
+     * one stands on the rook rays from it, and so on.
+     * @param square target square
+     * @param occupied bitboard of blocking pieces
+     * @return bitboard of the attackers
+     */
+    public long attackersTo(int square, long occupied) {
+        long queens = pieces[Piece.code(Piece.WHITE, Piece.QUEEN)] | pieces[Piece.code(Piece.BLACK, Piece.QUEEN)];
+        long rooks = pieces[Piece.code(Piece.WHITE, Piece.ROOK)] | pieces[Piece.code(Piece.BLACK, Piece.ROOK)] | queens;
+        long bishops = pieces[Piece.code(Piece.WHITE, Piece.BISHOP)] | pieces[Piece.code(Piece.BLACK, Piece.BISHOP)] | queens;
+        return (Attacks.pawn(Piece.BLACK, square) & pieces[Piece.code(Piece.WHITE, Piece.PAWN)])
+            | (Attacks.pawn(Piece.WHITE, square) & pieces[Piece.code(Piece.BLACK, Piece.PAWN)])
+            | (Attacks.knight(square) & (pieces[Piece.code(Piece.WHITE, Piece.KNIGHT)] | pieces[Piece.code(Piece.BLACK, Piece.KNIGHT)]))
+            | (Attacks.king(square) & (pieces[Piece.code(Piece.WHITE, Piece.KING)] | pieces[Piece.code(Piece.BLACK, Piece.KING)]))
+            | (Attacks.rook(square, occupied) & rooks)
+            | (Attacks.bishop(square, occupied) & bishops);
+    }
+
+    /**
+     * Check whether any piece of a color attacks a square
+     * @param square target square
+     * @param byColor color of the attacking side
+     * @return true if the square is attacked
+     */
+    public boolean isSquareAttacked(int square, int byColor) {
+        return isSquareAttacked(square, byColor, occupied);
+    }
+
+    /**
+     * Check whether any piece of a color attacks a square, with some pieces removed or added
+     * @param square target square
+     * @param byColor color of the attacking side
+     * @param occupied bitboard of blocking pieces to use instead of the board's
+     * @return true if the square is attacked
+     */
+    public boolean isSquareAttacked(int square, int byColor, long occupied) {
+        // Pieces missing from the given occupancy count as captured and do not attack
+        int base = Piece.code(byColor, Piece.PAWN);
+        if ((Attacks.pawn(byColor ^ 1, square) & pieces[base + Piece.PAWN] & occupied) != 0) return true;
+        if ((Attacks.knight(square) & pieces[base + Piece.KNIGHT] & occupied) != 0) return true;
+        if ((Attacks.king(square) & pieces[base + Piece.KING]) != 0) return true;
+        long queens = pieces[base + Piece.QUEEN];
+        if ((Attacks.rook(square, occupied) & (pieces[base + Piece.ROOK] | queens) & occupied) != 0) return true;
+        return (Attacks.bishop(square, occupied) & (pieces[base + Piece.BISHOP] | queens) & occupied) != 0;
+    }
+
+    /**
+     * Get the pieces giving check to the side to move
+     * @return bitboard of the checking pieces
+     */
+    public long checkers() {
+        return checkers;
+    }
+
+    public boolean isInCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * Get the pieces of the side to move that are pinned to their own king
+     * @return bitboard of the pinned pieces
+     */
+    public long pinned() {
+        return pinned;
+    }
+
+    /**
+     * Recompute the checkers and pinned pieces of the side to move. This runs once per move
+     * so the move generator and check tests can read them for free.
+     */
+    private void updateCheckInfo() {
+        int us = sideToMove;
+        int them = us ^ 1;
+        int king = kingSquare(us);
+        checkers = attackersTo(king, occupied) & colors[them];
+
+        pinned = 0L;
+        long theirs = colors[them];
+        long snipers = (Attacks.rook(king, theirs) & (pieces(them, Piece.ROOK) | pieces(them, Piece.QUEEN)))
+            | (Attacks.bishop(king, theirs) & (pieces(them, Piece.BISHOP) | pieces(them, Piece.QUEEN)));
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & colors[us];
+            }
+        }
+    }
+
+    void putPiece(int code, int square) {
+        long bit = 1L << square;
+        pieces[code] |= bit;
+        colors[Piece.colorOf(code)] |= bit;
+        occupied |= bit;
+        mailbox[square] = (byte) code;
+        key ^= Zobrist.piece(code, square);
+        if (Piece.typeOf(code) == Piece.PAWN) pawnKey ^= Zobrist.piece(code, square);
+        pieceSquareScore += PieceSquareTables.value(code, square);
+        phase += PieceSquareTables.phase(code);
+    }
+
+    private void removePiece(int square) {
+        int code = mailbox[square];
+        long bit = ~(1L << square);
+        pieces[code] &= bit;
+        colors[Piece.colorOf(code)] &= bit;
+        occupied &= bit;
+        mailbox[square] = (byte) Piece.EMPTY;
+        key ^= Zobrist.piece(code, square);
+        if (Piece.typeOf(code) == Piece.PAWN) pawnKey ^= Zobrist.piece(code, square);
+        pieceSquareScore -= PieceSquareTables.value(code, square);
+        phase -= PieceSquareTables.phase(code);
     }
 
     public void movePiece(int fromX, int fromY, int toX, int toY) {
-        if (isLegalMove(fromX, fromY, toX, toY)) {
-            board[toX][toY] = board[fromX][fromY];
-            board[fromX][fromY] = null;
+        int move = findMove(fromX, fromY, toX, toY);
+        if (move != Move.NONE) {
+            makeMove(move);
+            publish();
         }
     }
 
+    /**
+     * Make the current position visible to other threads through {@link #snapshot()}.
+     * Constructors, {@link #setFen(String)}, {@link #movePiece(int, int, int, int)} and
+     * {@link MoveCommand} publish by themselves; {@link #makeMove(int)} and the other
+     * low-level changes do not, so a search pays nothing for it.
+     * @return the new snapshot
+     */
+    public PositionSnapshot publish() {
+        PositionSnapshot published = new PositionSnapshot(mailbox, occupied, key, sideToMove, castlingRights,
+            enPassantSquare, halfmoveClock, fullmoveNumber, lastMove(), ply);
+        snapshot = published;
+        return published;
+    }
+
+    /**
+     * Get the position as last published. Safe to call from any thread without a lock; the
+     * snapshot never changes, and a newer one replaces it as a whole.
+     * @return the last published snapshot
+     */
+    public PositionSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Make a legal move and push what is needed to take it back onto the undo stack
+     * @param move packed move, see {@link Move}
+     */
+    public void makeMove(int move) {
+        if (ply == undoMoves.length) growUndoStack();
+        undoMoves[ply] = move;
+        undoStates[ply] = castlingRights | ((long) (enPassantSquare & 127) << 4) | ((long) halfmoveClock << 11);
+        undoKeys[ply] = key;
+        undoCheckers[ply] = checkers;
+        undoPinned[ply] = pinned;
+        ply++;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int code = Move.piece(move);
+        int color = Piece.colorOf(code);
+
+        if (flag == Move.EN_PASSANT) {
+            removePiece(color == Piece.WHITE ? to - 8 : to + 8);
+        } else if (Move.isCapture(move)) {
+            removePiece(to);
+        }
+        removePiece(from);
+        putPiece(flag == Move.PROMOTION ? Piece.code(color, Move.promotion(move)) : code, to);
+
+        if (flag == Move.CASTLE) {
+            boolean kingside = to > from;
+            int rookFrom = kingside ? to + 1 : to - 2;
+            int rookTo = kingside ? to - 1 : to + 1;
+            removePiece(rookFrom);
+            putPiece(Piece.code(color, Piece.ROOK), rookTo);
+        }
+
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.blackToMove();
+        castlingRights &= castlingMask(from) & castlingMask(to);
+        enPassantSquare = flag == Move.DOUBLE_PUSH ? (from + to) >>> 1 : NO_SQUARE;
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        halfmoveClock = Piece.typeOf(code) == Piece.PAWN || Move.isCapture(move) ? 0 : halfmoveClock + 1;
+        if (color == Piece.BLACK) fullmoveNumber++;
+        sideToMove = color ^ 1;
+        updateCheckInfo();
+        repetitions.increment(key);
+    }
+
+    /**
+     * Take back the last move made with {@link #makeMove(int)}
+     */
+    public void unmakeMove() {
+        repetitions.decrement(key);
+        ply--;
+        int move = undoMoves[ply];
+        long state = undoStates[ply];
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int code = Move.piece(move);
+        int color = Piece.colorOf(code);
+
+        if (flag == Move.CASTLE) {
+            boolean kingside = to > from;
+            int rookFrom = kingside ? to + 1 : to - 2;
+            int rookTo = kingside ? to - 1 : to + 1;
+            removePiece(rookTo);
+            putPiece(Piece.code(color, Piece.ROOK), rookFrom);
+        }
+
+        removePiece(to);
+        putPiece(code, from);
+        if (flag == Move.EN_PASSANT) {
+            putPiece(Move.captured(move), color == Piece.WHITE ? to - 8 : to + 8);
+        } else if (Move.isCapture(move)) {
+            putPiece(Move.captured(move), to);
+        }
+
+        castlingRights = (int) (state & 15);
+        int enPassant = (int) ((state >>> 4) & 127);
+        enPassantSquare = enPassant == 127 ? NO_SQUARE : enPassant;
+        halfmoveClock = (int) (state >>> 11);
+        if (color == Piece.BLACK) fullmoveNumber--;
+        sideToMove = color;
+        checkers = undoCheckers[ply];
+        pinned = undoPinned[ply];
+        key = undoKeys[ply];
+    }
+
+    /**
+     * Pass the turn without moving, for null-move pruning in search. The side to move
+     * must not be in check. Take it back with {@link #unmakeNullMove()}.
+     */
+    public void makeNullMove() {
+        if (ply == undoMoves.length) growUndoStack();
+        undoMoves[ply] = Move.NONE;
+        undoStates[ply] = castlingRights | ((long) (enPassantSquare & 127) << 4) | ((long) halfmoveClock << 11);
+        undoKeys[ply] = key;
+        undoCheckers[ply] = checkers;
+        undoPinned[ply] = pinned;
+        ply++;
+
+        key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.blackToMove();
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock++;
+        sideToMove ^= 1;
+        updateCheckInfo();
+    }
+
+    public void unmakeNullMove() {
+        ply--;
+        long state = undoStates[ply];
+        int enPassant = (int) ((state >>> 4) & 127);
+        enPassantSquare = enPassant == 127 ? NO_SQUARE : enPassant;
+        halfmoveClock = (int) (state >>> 11);
+        sideToMove ^= 1;
+        checkers = undoCheckers[ply];
+        pinned = undoPinned[ply];
+        key = undoKeys[ply];
+    }
+
+    /**
+     * Get the number of moves on the undo stack
+     * @return number of moves that can be taken back
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Get the last move made
+     * @return the move, or {@link Move#NONE} if no move was made
+     */
+    public int lastMove() {
+        return ply == 0 ? Move.NONE : undoMoves[ply - 1];
+    }
+
+    private void growUndoStack() {
+        int capacity = undoMoves.length * 2;
+        undoMoves = Arrays.copyOf(undoMoves, capacity);
+        undoStates = Arrays.copyOf(undoStates, capacity);
+        undoKeys = Arrays.copyOf(undoKeys, capacity);
+        undoCheckers = Arrays.copyOf(undoCheckers, capacity);
+        undoPinned = Arrays.copyOf(undoPinned, capacity);
+    }
+
+    /**
+     * Castling rights that survive a move touching the given square
+     * @param square square index
+     * @return mask of the rights that stay
+     */
+    private static int castlingMask(int square) {
+        switch (square) {
+            case 0: return ~WHITE_QUEENSIDE;
+            case 4: return ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+            case 7: return ~WHITE_KINGSIDE;
+            case 56: return ~BLACK_QUEENSIDE;
+            case 60: return ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+            case 63: return ~BLACK_KINGSIDE;
+            default: return ~0;
+        }
+    }
+
+    /**
+     * Check whether the side to move may move the piece on (fromX, fromY) to (toX, toY).
+     * The moves are generated into a buffer owned by the board, so this does not allocate.
+     * @param fromX x coordinate of the piece
+     * @param fromY y coordinate of the piece
+     * @param toX x coordinate of the target
+     * @param toY y coordinate of the target
+     * @return true if the move is legal
+     */
     public boolean isLegalMove(int fromX, int fromY, int toX, int toY) {
-        ChessPiece piece = board[fromX][fromY];
-        if (piece == null) return false;
+        return findMove(fromX, fromY, toX, toY) != Move.NONE;
+    }
 
-        // Check if the move is in the list of legal moves for the piece
-        for (int[] move : piece.getLegalMoves(fromX, fromY, this)) {
-            if (move[0] == toX && move[1] == toY) {
-                return true;
-            }
+    /**
+     * Find the legal move from (fromX, fromY) to (toX, toY). A pawn reaching the last
+     * row is promoted to a queen.
+     * @param fromX x coordinate of the piece
+     * @param fromY y coordinate of the piece
+     * @param toX x coordinate of the target
+     * @param toY y coordinate of the target
+     * @return the packed move, or {@link Move#NONE} if the move is not legal
+     */
+    public int findMove(int fromX, int fromY, int toX, int toY) {
+        if (fromX < 0 || fromX > 7 || fromY < 0 || fromY > 7 || toX < 0 || toX > 7 || toY < 0 || toY > 7) {
+            return Move.NONE;
+        }
+        int from = square(fromX, fromY);
+        int code = mailbox[from];
+        if (code == Piece.EMPTY || Piece.colorOf(code) != sideToMove) return Move.NONE;
+
+        return legalMoves().find(from, square(toX, toY));
+    }
+
+    /**
+     * Get the legal moves of the current position. They are generated on the first call for
+     * a position, keyed by its hash, and kept until a move changes it, so selecting pieces,
+     * highlighting targets and checking moves cost no further move generation.
+     * @return the legal moves; must not be changed, and only valid until the board changes
+     */
+    public MoveList legalMoves() {
+        if (legalMoves == null) legalMoves = new MoveList();
+        legalMovesLookups++;
+        if (!legalMovesValid || legalMovesKey != key) {
+            MoveGenerator.generateMoves(this, legalMoves);
+            legalMovesKey = key;
+            legalMovesValid = true;
+        } else {
+            legalMovesHits++;
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Get how often {@link #legalMoves()} was called on this board
+     * @return number of lookups since the board was created
+     */
+    public long getLegalMovesLookups() {
+        return legalMovesLookups;
+    }
+
+    /**
+     * Get how often {@link #legalMoves()} was answered without generating moves
+     * @return number of cache hits since the board was created
+     */
+    public long getLegalMovesHits() {
+        return legalMovesHits;
+    }
+
+    /**
+     * Get the squares the piece on a square can legally move to
+     * @param square square index (y * 8 + x)
+     * @return bitboard of target squares, empty if the square holds no piece of the side to move
+     */
+    public long legalTargets(int square) {
+        MoveList moves = legalMoves();
+        long targets = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.from(move) == square) targets |= 1L << Move.to(move);
         }
-        return false;
+        return targets;
     }
 }
@@ -0,0 +1,107 @@
+package Model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One record of an Extended Position Description (EPD) file: the four position fields of
+ * a FEN followed by operations such as {@code bm Nf3; id "test.1";}.
+ *
+ * Lines that hold a full six-field FEN are accepted as well; the move counters are kept
+ * and there are no operations.
+ */
+public final class Epd {
+    private final String fen;
+    private final Map<String, String> operations;
+
+    private Epd(String fen, Map<String, String> operations) {
+        this.fen = fen;
+        this.operations = operations;
+    }
+
+    /**
+     * Parse an EPD or FEN line. The position itself is only checked when it is loaded into
+     * a {@link ChessBoard}.
+     * @param line one line of an EPD file
+     * @return the record
+     * @throws IllegalArgumentException if the line has fewer than four fields
+     */
+    public static Epd parse(String line) {
+        String[] fields = line.trim().split("\\s+", 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("EPD needs at least 4 fields: " + line);
+        }
+        String fen = fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3];
+        String rest = fields.length > 4 ? fields[4] : "";
+
+        // A plain FEN carries the move counters where the operations would be
+        String[] counters = rest.split("\\s+");
+        if (counters.length == 2 && isNumber(counters[0]) && isNumber(counters[1])) {
+            return new Epd(fen + " " + rest, Collections.emptyMap());
+        }
+        return new Epd(fen, parseOperations(rest, line));
+    }
+
+    private static Map<String, String> parseOperations(String text, String line) {
+        Map<String, String> operations = new LinkedHashMap<>();
+        int i = 0;
+        while (i < text.length()) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+            if (i == text.length()) break;
+
+            int start = i;
+            while (i < text.length() && !Character.isWhitespace(text.charAt(i)) && text.charAt(i) != ';') i++;
+            String opcode = text.substring(start, i);
+
+            // Operands run to the next semicolon that is not inside a string
+            StringBuilder operand = new StringBuilder();
+            boolean quoted = false;
+            while (i < text.length() && (quoted || text.charAt(i) != ';')) {
+                char c = text.charAt(i++);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else {
+                    operand.append(c);
+                }
+            }
+            if (quoted) throw new IllegalArgumentException("Unterminated string in EPD: " + line);
+            i++; // the semicolon
+            operations.put(opcode, operand.toString().trim());
+        }
+        return operations;
+    }
+
+    private static boolean isNumber(String text) {
+        if (text.isEmpty()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the position, for {@link ChessBoard#ChessBoard(String)}
+     * @return the position fields, with move counters if the line had them
+     */
+    public String getFen() {
+        return fen;
+    }
+
+    /**
+     * Get the operations in the order they appeared; quotes around strings are removed
+     * @return opcode to operand text
+     */
+    public Map<String, String> getOperations() {
+        return Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * Get the operand of one operation
+     * @param opcode operation name, for example "id" or "bm"
+     * @return the operand, or null if the record has no such operation
+     */
+    public String getOperation(String opcode) {
+        return operations.get(opcode);
+    }
+}
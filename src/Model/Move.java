@@ -0,0 +1,117 @@
+package Model;
+
+/**
+ * Packed int encoding of a move.
+ *
+ * <pre>
+ * bits  0-5   from square
+ * bits  6-11  to square
+ * bits 12-14  flag (QUIET, DOUBLE_PUSH, CASTLE, EN_PASSANT, PROMOTION)
+ * bits 15-17  promotion piece type
+ * bits 18-21  moving piece code
+ * bits 22-25  captured piece code ({@link Piece#EMPTY} if none)
+ * </pre>
+ *
+ * Moves are plain ints so they can be stored in a {@link MoveList} without allocating.
+ * {@link #NONE} is never a real move since from and to are equal.
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int CASTLE = 2;
+    public static final int EN_PASSANT = 3;
+    public static final int PROMOTION = 4;
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int flag, int promotion, int piece, int captured) {
+        return from | (to << 6) | (flag << 12) | (promotion << 15) | (piece << 18) | (captured << 22);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 15) & 7;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 18) & 15;
+    }
+
+    public static int captured(int move) {
+        return (move >>> 22) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return captured(move) != Piece.EMPTY;
+    }
+
+    /**
+     * Shrink a move to 16 bits for storage: from square, to square and promotion type.
+     * The other fields follow from the position and are restored by {@link #fromCompact}.
+     * @param move packed move
+     * @return the compact move, below 65536
+     */
+    public static int toCompact(int move) {
+        return move & 0xFFF | (flag(move) == PROMOTION ? promotion(move) << 12 : 0);
+    }
+
+    /**
+     * Find the full move for a compact move
+     * @param compact move from {@link #toCompact(int)}
+     * @param legalMoves the legal moves of the position the move was made in
+     * @return the packed move, or {@link #NONE} if it is not among the legal moves
+     */
+    public static int fromCompact(int compact, MoveList legalMoves) {
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (toCompact(move) == compact) return move;
+        }
+        return NONE;
+    }
+
+    /**
+     * Get the move in coordinate notation, for example "e2e4" or "e7e8q"
+     * @param move packed move
+     * @return move text
+     */
+    public static String toString(int move) {
+        if (move == NONE) return "0000";
+        String text = squareName(from(move)) + squareName(to(move));
+        if (flag(move) == PROMOTION) {
+            text += "nbrq".charAt(promotion(move) - Piece.KNIGHT);
+        }
+        return text;
+    }
+
+    /**
+     * Find the legal move written in coordinate notation
+     * @param text move text, for example "e2e4" or "e7e8q"
+     * @param legalMoves the legal moves of the position
+     * @return the packed move, or {@link #NONE} if the text is not one of the legal moves
+     */
+    public static int parse(String text, MoveList legalMoves) {
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (toString(move).equals(text)) return move;
+        }
+        return NONE;
+    }
+
+    public static String squareName(int square) {
+        return "" + (char) ('a' + ChessBoard.fileOf(square)) + (char) ('1' + ChessBoard.rankOf(square));
+    }
+}
@@ -0,0 +1,37 @@
+package Model;
+
+/**
+ * A move wrapped as a command that can be executed and undone (Command pattern).
+ *
+ * The command only holds the packed move; everything needed to take it back lives
+ * on the board's undo stack, so commands must be undone in reverse order. Executing and
+ * undoing publish the new position, see {@link ChessBoard#snapshot()}.
+ */
+public class MoveCommand {
+    private final ChessBoard board;
+    private final int move;
+
+    public MoveCommand(ChessBoard board, int move) {
+        this.board = board;
+        this.move = move;
+    }
+
+    public void execute() {
+        board.makeMove(move);
+        board.publish();
+    }
+
+    public void undo() {
+        board.unmakeMove();
+        board.publish();
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    @Override
+    public String toString() {
+        return Move.toString(move);
+    }
+}
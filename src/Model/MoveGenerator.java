@@ -0,0 +1,187 @@
+package Model;
+
+/**
+ * Generates legal packed moves (see {@link Move}) into a caller-owned {@link MoveList}.
+ *
+ * Nothing here allocates: pieces are found by iterating the board's bitboards and their
+ * targets come from the precomputed {@link Attacks} tables. Legality uses the checkers
+ * and pinned pieces the board keeps up to date: in check, the other pieces may only
+ * capture the checker or block; a pinned piece stays on the line to its king; the king
+ * only steps to squares that are not attacked once it has left its square.
+ */
+public final class MoveGenerator {
+    private MoveGenerator() {
+    }
+
+    /**
+     * Generate the legal moves of the side to move
+     * @param board The chess board
+     * @param moves buffer that is cleared and filled with the moves
+     */
+    public static void generateMoves(ChessBoard board, MoveList moves) {
+        moves.clear();
+        generate(board, -1L, true, moves);
+    }
+
+    /**
+     * Generate the legal captures and promotions of the side to move, for quiescence search
+     * @param board The chess board
+     * @param moves buffer that is cleared and filled with the moves
+     */
+    public static void generateCaptures(ChessBoard board, MoveList moves) {
+        moves.clear();
+        generate(board, -1L, false, moves);
+    }
+
+    /**
+     * Generate the legal moves of the piece on one square. A piece that does not
+     * belong to the side to move has no moves.
+     * @param board The chess board
+     * @param from square of the piece
+     * @param moves buffer that is cleared and filled with the moves
+     */
+    public static void generateMovesFrom(ChessBoard board, int from, MoveList moves) {
+        moves.clear();
+        generate(board, 1L << from, true, moves);
+    }
+
+    private static void generate(ChessBoard board, long fromMask, boolean quiets, MoveList moves) {
+        int us = board.sideToMove();
+        int them = us ^ 1;
+        int king = board.kingSquare(us);
+        long own = board.occupancy(us);
+        long checkers = board.checkers();
+        long targetFilter = quiets ? ~own : board.occupancy(them);
+
+        if ((fromMask & (1L << king)) != 0) {
+            addKingMoves(board, king, us, targetFilter, moves);
+        }
+        // In double check only the king can move
+        if (Long.bitCount(checkers) > 1) return;
+
+        // Squares that resolve a single check: capture the checker or block its ray
+        long evasionMask = -1L;
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            evasionMask = checkers | Attacks.between(king, checker);
+        }
+
+        long pinned = board.pinned();
+        long pieces = own & ~board.pieces(us, Piece.KING) & fromMask;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long allowed = evasionMask;
+            if ((pinned & (1L << from)) != 0) {
+                allowed &= Attacks.line(king, from);
+            }
+            int code = board.pieceOn(from);
+            if (Piece.typeOf(code) == Piece.PAWN) {
+                addPawnMoves(board, from, code, allowed, quiets, moves);
+            } else {
+                long targets = Attacks.of(Piece.typeOf(code), us, from, board.occupied()) & targetFilter & allowed;
+                addTargets(board, from, code, targets, moves);
+            }
+        }
+
+        if (quiets && checkers == 0 && (fromMask & (1L << king)) != 0) {
+            addCastlingMoves(board, king, them, moves);
+        }
+    }
+
+    private static void addTargets(ChessBoard board, int from, int code, long targets, MoveList moves) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Move.of(from, to, Move.QUIET, 0, code, board.pieceOn(to)));
+        }
+    }
+
+    private static void addKingMoves(ChessBoard board, int king, int us, long targetFilter, MoveList moves) {
+        int code = Piece.code(us, Piece.KING);
+        // Take the king off the board so it cannot hide behind itself from a slider
+        long occupied = board.occupied() ^ (1L << king);
+        long targets = Attacks.king(king) & targetFilter;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!board.isSquareAttacked(to, us ^ 1, occupied & ~(1L << to))) {
+                moves.add(Move.of(king, to, Move.QUIET, 0, code, board.pieceOn(to)));
+            }
+        }
+    }
+
+    private static void addPawnMoves(ChessBoard board, int from, int code, long allowed, boolean quiets, MoveList moves) {
+        int color = Piece.colorOf(code);
+        int forward = color == Piece.WHITE ? 8 : -8;
+        int startRank = color == Piece.WHITE ? 1 : 6;
+
+        // Standard one-step move and two-step move from the starting row; without quiet
+        // moves only pushes that promote are kept
+        int to = from + forward;
+        boolean promotes = ChessBoard.rankOf(to) == 0 || ChessBoard.rankOf(to) == 7;
+        if (board.pieceOn(to) == Piece.EMPTY && (quiets || promotes)) {
+            if ((allowed & (1L << to)) != 0) {
+                addPawnMove(from, to, code, Piece.EMPTY, moves);
+            }
+            int twoSteps = to + forward;
+            if (quiets && ChessBoard.rankOf(from) == startRank && board.pieceOn(twoSteps) == Piece.EMPTY
+                && (allowed & (1L << twoSteps)) != 0) {
+                moves.add(Move.of(from, twoSteps, Move.DOUBLE_PUSH, 0, code, Piece.EMPTY));
+            }
+        }
+
+        // Captures
+        long attacks = Attacks.pawn(color, from);
+        long captures = attacks & board.occupancy(color ^ 1) & allowed;
+        while (captures != 0) {
+            int target = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            addPawnMove(from, target, code, board.pieceOn(target), moves);
+        }
+
+        // En passant removes two pieces from one rank, so check the resulting position directly
+        int enPassant = board.enPassantSquare();
+        if (enPassant != ChessBoard.NO_SQUARE && (attacks & (1L << enPassant)) != 0) {
+            int capturedSquare = enPassant - forward;
+            long occupied = (board.occupied() ^ (1L << from) ^ (1L << capturedSquare)) | (1L << enPassant);
+            if (!board.isSquareAttacked(board.kingSquare(color), color ^ 1, occupied)) {
+                moves.add(Move.of(from, enPassant, Move.EN_PASSANT, 0, code, Piece.code(color ^ 1, Piece.PAWN)));
+            }
+        }
+    }
+
+    private static void addPawnMove(int from, int to, int code, int captured, MoveList moves) {
+        int rank = ChessBoard.rankOf(to);
+        if (rank == 0 || rank == 7) {
+            for (int type = Piece.QUEEN; type >= Piece.KNIGHT; type--) {
+                moves.add(Move.of(from, to, Move.PROMOTION, type, code, captured));
+            }
+        } else {
+            moves.add(Move.of(from, to, Move.QUIET, 0, code, captured));
+        }
+    }
+
+    private static void addCastlingMoves(ChessBoard board, int from, int enemy, MoveList moves) {
+        int color = enemy ^ 1;
+        int home = color == Piece.WHITE ? 4 : 60;
+        int rights = board.castlingRights();
+        int kingside = color == Piece.WHITE ? ChessBoard.WHITE_KINGSIDE : ChessBoard.BLACK_KINGSIDE;
+        int queenside = color == Piece.WHITE ? ChessBoard.WHITE_QUEENSIDE : ChessBoard.BLACK_QUEENSIDE;
+        if (from != home || (rights & (kingside | queenside)) == 0) return;
+
+        int code = Piece.code(color, Piece.KING);
+        int rook = Piece.code(color, Piece.ROOK);
+        if ((rights & kingside) != 0 && board.pieceOn(home + 3) == rook
+            && board.pieceOn(home + 1) == Piece.EMPTY && board.pieceOn(home + 2) == Piece.EMPTY
+            && !board.isSquareAttacked(home + 1, enemy) && !board.isSquareAttacked(home + 2, enemy)) {
+            moves.add(Move.of(home, home + 2, Move.CASTLE, 0, code, Piece.EMPTY));
+        }
+        if ((rights & queenside) != 0 && board.pieceOn(home - 4) == rook
+            && board.pieceOn(home - 1) == Piece.EMPTY && board.pieceOn(home - 2) == Piece.EMPTY
+            && board.pieceOn(home - 3) == Piece.EMPTY
+            && !board.isSquareAttacked(home - 1, enemy) && !board.isSquareAttacked(home - 2, enemy)) {
+            moves.add(Move.of(home, home - 2, Move.CASTLE, 0, code, Piece.EMPTY));
+        }
+    }
+}
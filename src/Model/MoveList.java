@@ -0,0 +1,73 @@
+package Model;
+
+/**
+ * A reusable buffer of packed moves (see {@link Move}).
+ *
+ * The caller owns the buffer and hands it to the {@link MoveGenerator}, which
+ * overwrites its contents. Keeping one list per search ply means move generation
+ * does not allocate.
+ */
+public final class MoveList {
+    public static final int CAPACITY = 256; // more than the 218 moves any position can have
+
+    private final int[] moves;
+    private int size;
+
+    public MoveList() {
+        moves = new int[CAPACITY];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    /**
+     * Find the first move between two squares. Promotions are generated queen first,
+     * so this returns the queen promotion when several moves match.
+     * @param from from square
+     * @param to to square
+     * @return the move, or {@link Move#NONE} if there is none
+     */
+    public int find(int from, int to) {
+        for (int i = 0; i < size; i++) {
+            int move = moves[i];
+            if (Move.from(move) == from && Move.to(move) == to) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,126 @@
+package Model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary encoding of a position in {@value #BYTES} bytes.
+ *
+ * <pre>
+ * bytes  0-7   occupancy bitboard
+ * bytes  8-23  one 4-bit code per occupied square, lowest square first, low nibble first
+ * byte   24    halfmove clock (saturated at 255)
+ * bytes 25-26  fullmove number (saturated at 65535)
+ * bytes 27-31  zero, so records stay aligned
+ * </pre>
+ *
+ * The nibbles are piece codes 0-11 (see {@link Piece}), plus three codes that carry the
+ * rest of the state: {@link #CASTLING_ROOK} is a rook on its home corner that may still
+ * castle, {@link #EN_PASSANT_PAWN} is a pawn that has just moved two squares, and
+ * {@link #BLACK_KING_TO_MOVE} is the black king when black is to move. A castling right
+ * without its rook in the corner cannot be stored and is dropped.
+ *
+ * Records are read and written with absolute gets and puts, so a buffer can hold many
+ * records back to back and record i sits at offset {@code i * BYTES}.
+ */
+public final class PackedPosition {
+    public static final int BYTES = 32;
+
+    static final int CASTLING_ROOK = 12;
+    static final int EN_PASSANT_PAWN = 13;
+    static final int BLACK_KING_TO_MOVE = 14;
+
+    // Corner of the rook of each castling right, in the bit order of the rights
+    private static final int[] CASTLING_CORNERS = {7, 0, 63, 56};
+
+    private PackedPosition() {
+    }
+
+    /**
+     * Encode a position
+     * @param board The chess board
+     * @param buffer buffer to write to
+     * @param offset index of the first byte of the record
+     */
+    public static void write(ChessBoard board, ByteBuffer buffer, int offset) {
+        long occupied = board.occupied();
+        buffer.putLong(offset, occupied);
+        for (int i = 8; i < BYTES; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+
+        int enPassantPawn = board.enPassantSquare() == ChessBoard.NO_SQUARE ? -1 : board.enPassantSquare() ^ 8;
+        int nibble = 0;
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            int code = board.pieceOn(square);
+            int type = Piece.typeOf(code);
+            if (type == Piece.ROOK && (board.castlingRights() & castlingRight(square)) != 0
+                && Piece.colorOf(code) == (square < 8 ? Piece.WHITE : Piece.BLACK)) {
+                code = CASTLING_ROOK;
+            } else if (type == Piece.PAWN && square == enPassantPawn) {
+                code = EN_PASSANT_PAWN;
+            } else if (code == Piece.code(Piece.BLACK, Piece.KING) && board.sideToMove() == Piece.BLACK) {
+                code = BLACK_KING_TO_MOVE;
+            }
+            int index = offset + 8 + (nibble >>> 1);
+            buffer.put(index, (byte) (buffer.get(index) | code << ((nibble & 1) << 2)));
+            nibble++;
+        }
+
+        buffer.put(offset + 24, (byte) Math.min(255, board.halfmoveClock()));
+        buffer.putShort(offset + 25, (short) Math.min(65535, board.fullmoveNumber()));
+    }
+
+    /**
+     * Decode a position into a board, replacing its position and emptying its undo stack
+     * @param buffer buffer to read from
+     * @param offset index of the first byte of the record
+     * @param board board to set up
+     * @throws IllegalArgumentException if the record is not a valid position
+     */
+    public static void read(ByteBuffer buffer, int offset, ChessBoard board) {
+        long occupied = buffer.getLong(offset);
+        if (Long.bitCount(occupied) > 32) {
+            throw new IllegalArgumentException("Packed position has more than 32 pieces");
+        }
+        board.beginSetup();
+        int side = Piece.WHITE;
+        int castling = 0;
+        int enPassant = ChessBoard.NO_SQUARE;
+        int nibble = 0;
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            int code = (buffer.get(offset + 8 + (nibble >>> 1)) >>> ((nibble & 1) << 2)) & 15;
+            nibble++;
+            int rank = ChessBoard.rankOf(square);
+            if (code == CASTLING_ROOK) {
+                int right = castlingRight(square);
+                if (right == 0) throw new IllegalArgumentException("Castling rook off its corner");
+                castling |= right;
+                code = Piece.code(rank == 0 ? Piece.WHITE : Piece.BLACK, Piece.ROOK);
+            } else if (code == EN_PASSANT_PAWN) {
+                if (rank != 3 && rank != 4) throw new IllegalArgumentException("En-passant pawn on the wrong rank");
+                enPassant = square ^ 8;
+                code = Piece.code(rank == 3 ? Piece.WHITE : Piece.BLACK, Piece.PAWN);
+            } else if (code == BLACK_KING_TO_MOVE) {
+                side = Piece.BLACK;
+                code = Piece.code(Piece.BLACK, Piece.KING);
+            } else if (code >= 12) {
+                throw new IllegalArgumentException("Bad piece code " + code + " in packed position");
+            }
+            board.putPiece(code, square);
+        }
+        int halfmove = buffer.get(offset + 24) & 0xFF;
+        int fullmove = buffer.getShort(offset + 25) & 0xFFFF;
+        board.finishSetup(side, castling, enPassant, halfmove, fullmove);
+    }
+
+    private static int castlingRight(int square) {
+        for (int right = 0; right < 4; right++) {
+            if (CASTLING_CORNERS[right] == square) return 1 << right;
+        }
+        return 0;
+    }
+}
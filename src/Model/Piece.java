@@ -0,0 +1,71 @@
+package Model;
+
+/**
+ * Primitive codes for piece types, colors and colored pieces.
+ *
+ * A colored piece is encoded as {@code color * 6 + type}, so the 12 pieces can index
+ * arrays directly (one bitboard per piece, one image per piece ...).
+ * {@link #EMPTY} marks an empty square.
+ */
+public final class Piece {
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int EMPTY = 12;
+
+    private static final String[] TYPE_NAMES = {"pawn", "knight", "bishop", "rook", "queen", "king"};
+    private static final String[] COLOR_NAMES = {"white", "black"};
+
+    private Piece() {
+    }
+
+    public static int code(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int typeOf(int code) {
+        return code % 6;
+    }
+
+    public static int colorOf(int code) {
+        return code / 6;
+    }
+
+    public static String typeName(int type) {
+        return TYPE_NAMES[type];
+    }
+
+    public static String colorName(int color) {
+        return COLOR_NAMES[color];
+    }
+
+    /**
+     * Get the type code for a type name such as "knight"
+     * @param name type name
+     * @return type code, or -1 if the name is unknown
+     */
+    public static int typeFromName(String name) {
+        for (int type = PAWN; type <= KING; type++) {
+            if (TYPE_NAMES[type].equals(name)) return type;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the color code for a color name ("white" or "black")
+     * @param name color name
+     * @return color code, or -1 if the name is unknown
+     */
+    public static int colorFromName(String name) {
+        if (COLOR_NAMES[WHITE].equals(name)) return WHITE;
+        if (COLOR_NAMES[BLACK].equals(name)) return BLACK;
+        return -1;
+    }
+}
@@ -0,0 +1,155 @@
+package Model;
+
+/**
+ * Material and piece-square values for a tapered evaluation, kept up to date by
+ * {@link ChessBoard} as pieces come and go.
+ *
+ * Every piece on a square is worth one middlegame and one endgame score. Both are packed
+ * into one int, the endgame score in the high half, so adding and subtracting packed
+ * scores adds both halves at once. Values are from white's point of view: black pieces
+ * count negative. An evaluation blends the two halves by {@link ChessBoard#phase()}.
+ */
+public final class PieceSquareTables {
+    /** Phase of a board with all pieces; more after promotions, so callers clamp to it */
+    public static final int MAX_PHASE = 24;
+
+    private static final int[] MIDDLEGAME_VALUES = {100, 320, 330, 500, 900, 0};
+    private static final int[] ENDGAME_VALUES = {120, 300, 320, 530, 950, 0};
+    private static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+
+    // Piece-square tables from white's point of view, rank 8 first
+    private static final int[] PAWN_MIDDLEGAME = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+         5,  5, 10, 25, 25, 10,  5,  5,
+         0,  0,  0, 20, 20,  0,  0,  0,
+         5, -5,-10,  0,  0,-10, -5,  5,
+         5, 10, 10,-20,-20, 10, 10,  5,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+    private static final int[] PAWN_ENDGAME = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        80, 80, 80, 80, 80, 80, 80, 80,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        30, 30, 30, 30, 30, 30, 30, 30,
+        15, 15, 15, 15, 15, 15, 15, 15,
+         5,  5,  5,  5,  5,  5,  5,  5,
+         0,  0,  0,  0,  0,  0,  0,  0,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+    private static final int[] KNIGHT = {
+       -50,-40,-30,-30,-30,-30,-40,-50,
+       -40,-20,  0,  0,  0,  0,-20,-40,
+       -30,  0, 10, 15, 15, 10,  0,-30,
+       -30,  5, 15, 20, 20, 15,  5,-30,
+       -30,  0, 15, 20, 20, 15,  0,-30,
+       -30,  5, 10, 15, 15, 10,  5,-30,
+       -40,-20,  0,  5,  5,  0,-20,-40,
+       -50,-40,-30,-30,-30,-30,-40,-50
+    };
+    private static final int[] BISHOP = {
+       -20,-10,-10,-10,-10,-10,-10,-20,
+       -10,  0,  0,  0,  0,  0,  0,-10,
+       -10,  0,  5, 10, 10,  5,  0,-10,
+       -10,  5,  5, 10, 10,  5,  5,-10,
+       -10,  0, 10, 10, 10, 10,  0,-10,
+       -10, 10, 10, 10, 10, 10, 10,-10,
+       -10,  5,  0,  0,  0,  0,  5,-10,
+       -20,-10,-10,-10,-10,-10,-10,-20
+    };
+    private static final int[] ROOK = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+         5, 10, 10, 10, 10, 10, 10,  5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+         0,  0,  0,  5,  5,  0,  0,  0
+    };
+    private static final int[] QUEEN = {
+       -20,-10,-10, -5, -5,-10,-10,-20,
+       -10,  0,  0,  0,  0,  0,  0,-10,
+       -10,  0,  5,  5,  5,  5,  0,-10,
+        -5,  0,  5,  5,  5,  5,  0, -5,
+         0,  0,  5,  5,  5,  5,  0, -5,
+       -10,  5,  5,  5,  5,  5,  0,-10,
+       -10,  0,  5,  0,  0,  0,  0,-10,
+       -20,-10,-10, -5, -5,-10,-10,-20
+    };
+    private static final int[] KING_MIDDLEGAME = {
+       -30,-40,-40,-50,-50,-40,-40,-30,
+       -30,-40,-40,-50,-50,-40,-40,-30,
+       -30,-40,-40,-50,-50,-40,-40,-30,
+       -30,-40,-40,-50,-50,-40,-40,-30,
+       -20,-30,-30,-40,-40,-30,-30,-20,
+       -10,-20,-20,-20,-20,-20,-20,-10,
+        20, 20,  0,  0,  0,  0, 20, 20,
+        20, 30, 10,  0,  0, 10, 30, 20
+    };
+    // In the endgame the king belongs in the centre
+    private static final int[] KING_ENDGAME = {
+       -50,-40,-30,-20,-20,-30,-40,-50,
+       -30,-20,-10,  0,  0,-10,-20,-30,
+       -30,-10, 20, 30, 30, 20,-10,-30,
+       -30,-10, 30, 40, 40, 30,-10,-30,
+       -30,-10, 30, 40, 40, 30,-10,-30,
+       -30,-10, 20, 30, 30, 20,-10,-30,
+       -30,-30,  0,  0,  0,  0,-30,-30,
+       -50,-30,-30,-30,-30,-30,-30,-50
+    };
+
+    private static final int[][] MIDDLEGAME = {PAWN_MIDDLEGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_MIDDLEGAME};
+    private static final int[][] ENDGAME = {PAWN_ENDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_ENDGAME};
+
+    private static final int[][] VALUES = new int[12][64]; // packed, by piece code and square
+
+    static {
+        for (int code = 0; code < 12; code++) {
+            int type = Piece.typeOf(code);
+            boolean white = Piece.colorOf(code) == Piece.WHITE;
+            for (int square = 0; square < 64; square++) {
+                // Square indices start at a1, the tables at a8; black reads them mirrored
+                int index = white ? square ^ 56 : square;
+                int score = pack(MIDDLEGAME_VALUES[type] + MIDDLEGAME[type][index], ENDGAME_VALUES[type] + ENDGAME[type][index]);
+                VALUES[code][square] = white ? score : -score;
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    /**
+     * Get the packed value of a piece on a square, from white's point of view
+     * @param code piece code
+     * @param square square index
+     * @return packed middlegame and endgame score
+     */
+    public static int value(int code, int square) {
+        return VALUES[code][square];
+    }
+
+    /**
+     * Get how much a piece counts towards the game phase
+     * @param code piece code
+     * @return 0 for pawns and kings, 1 for minor pieces, 2 for rooks, 4 for queens
+     */
+    public static int phase(int code) {
+        return PHASE[Piece.typeOf(code)];
+    }
+
+    public static int pack(int middlegame, int endgame) {
+        return (endgame << 16) + middlegame;
+    }
+
+    public static int middlegame(int score) {
+        return (short) score;
+    }
+
+    public static int endgame(int score) {
+        // Round so a negative middlegame half that borrowed from the endgame half is given back
+        return (score + 0x8000) >> 16;
+    }
+}
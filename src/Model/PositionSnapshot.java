@@ -0,0 +1,143 @@
+package Model;
+
+/**
+ * An immutable copy of a position, for threads that read a board another thread changes.
+ *
+ * A {@link ChessBoard} publishes a new snapshot through a single volatile reference after
+ * each game move (copy-on-write), so a reader takes {@link ChessBoard#snapshot()} once and
+ * sees a whole position: never a move applied halfway, and no lock on either side. The
+ * squares are packed four bits each into four longs, so a snapshot is one small object
+ * and {@link #pieceOn(int)} is a shift and a mask. All fields are final, which makes a
+ * snapshot safe to hand to any thread.
+ */
+public final class PositionSnapshot {
+    // Piece code of every square, 16 squares per long, lowest square in the lowest nibble
+    private final long squares0;
+    private final long squares1;
+    private final long squares2;
+    private final long squares3;
+    private final long occupied;
+    private final long key;
+    private final int sideToMove;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final int lastMove;
+    private final int ply;
+
+    /**
+     * Copy a board's position
+     * @param mailbox piece code of every square
+     */
+    PositionSnapshot(byte[] mailbox, long occupied, long key, int sideToMove, int castlingRights, int enPassantSquare,
+                     int halfmoveClock, int fullmoveNumber, int lastMove, int ply) {
+        this.squares0 = pack(mailbox, 0);
+        this.squares1 = pack(mailbox, 16);
+        this.squares2 = pack(mailbox, 32);
+        this.squares3 = pack(mailbox, 48);
+        this.occupied = occupied;
+        this.key = key;
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        this.lastMove = lastMove;
+        this.ply = ply;
+    }
+
+    private static long pack(byte[] mailbox, int first) {
+        long packed = 0;
+        for (int i = 15; i >= 0; i--) {
+            packed = packed << 4 | mailbox[first + i];
+        }
+        return packed;
+    }
+
+    /**
+     * Get the piece on a square
+     * @param square square index (y * 8 + x)
+     * @return piece code, or {@link Piece#EMPTY}
+     */
+    public int pieceOn(int square) {
+        long packed;
+        switch (square >>> 4) {
+            case 0: packed = squares0; break;
+            case 1: packed = squares1; break;
+            case 2: packed = squares2; break;
+            default: packed = squares3; break;
+        }
+        return (int) (packed >>> ((square & 15) << 2)) & 15;
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public long key() {
+        return key;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Get the move that led to this position
+     * @return the move, or {@link Move#NONE} at the start of the game
+     */
+    public int lastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Get the number of moves the game had when this snapshot was taken; a later snapshot
+     * of the same game has a different ply or key
+     * @return number of moves on the board's undo stack
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * Set up a new board with this position, for example for analysis on another thread.
+     * The board has no move history, so earlier positions do not count as repetitions.
+     * @return a new board
+     */
+    public ChessBoard toBoard() {
+        ChessBoard board = new ChessBoard();
+        board.beginSetup();
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            board.putPiece(pieceOn(square), square);
+        }
+        board.finishSetup(sideToMove, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+        board.publish();
+        return board;
+    }
+
+    /**
+     * Write the position in Forsyth-Edwards Notation
+     * @return the FEN string
+     */
+    public String toFen() {
+        return toBoard().toFen();
+    }
+}
@@ -0,0 +1,96 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Counts how often each position key occurs on the board's move history.
+ *
+ * An open-addressed table of keys and counts: {@link ChessBoard} increments the count of
+ * the new key on every move and decrements it again on unmake, so asking how often the
+ * current position has occurred is a single probe instead of a walk back through the
+ * history. Slots whose count drops to zero are removed with backward-shift deletion so
+ * probe chains stay short.
+ */
+final class RepetitionTable {
+    private long[] keys = new long[32];
+    private int[] counts = new int[32];
+    private int size;
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    void copyFrom(RepetitionTable other) {
+        keys = other.keys.clone();
+        counts = other.counts.clone();
+        size = other.size;
+    }
+
+    int count(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return counts[i];
+        }
+        return 0;
+    }
+
+    void increment(long key) {
+        if (2 * (size + 1) > keys.length) grow();
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (counts[i] != 0) {
+            if (keys[i] == key) {
+                counts[i]++;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        counts[i] = 1;
+        size++;
+    }
+
+    void decrement(long key) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (keys[i] != key || counts[i] == 0) {
+            if (counts[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        if (--counts[i] > 0) return;
+
+        // Shift later entries of the chain back into the freed slot
+        size--;
+        int free = i;
+        for (int j = (i + 1) & mask; counts[j] != 0; j = (j + 1) & mask) {
+            int home = index(keys[j], mask);
+            // Move the entry if its home slot is not in the cyclic range (free, j]
+            if (((j - home) & mask) >= ((j - free) & mask)) {
+                keys[free] = keys[j];
+                counts[free] = counts[j];
+                counts[j] = 0;
+                free = j;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldCounts[j] == 0) continue;
+            int i = index(oldKeys[j], mask);
+            while (counts[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            counts[i] = oldCounts[j];
+        }
+    }
+
+    private static int index(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
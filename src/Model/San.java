@@ -0,0 +1,157 @@
+package Model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Resolves moves in Standard Algebraic Notation (SAN), as used in PGN files, to packed
+ * moves (see {@link Move}).
+ *
+ * The token is read in place from a byte buffer and matched against the legal moves of
+ * the position, so nothing is allocated per move. Check and annotation suffixes such as
+ * "+", "#" and "!?" are ignored, castling may be written with letter O or digit 0, and
+ * the "=" before a promotion piece may be left out.
+ */
+public final class San {
+    private San() {
+    }
+
+    /**
+     * Resolve a SAN move
+     * @param board The chess board
+     * @param san the move, for example "Nbd7" or "exd8=Q+"
+     * @return the packed move, or {@link Move#NONE} if it is not a unique legal move
+     */
+    public static int parse(ChessBoard board, String san) {
+        ByteBuffer bytes = ByteBuffer.wrap(san.getBytes(StandardCharsets.US_ASCII));
+        return parse(board, bytes, 0, bytes.limit(), new MoveList());
+    }
+
+    /**
+     * Resolve a SAN move stored as ASCII bytes. Only absolute reads are used, so several
+     * threads can share the buffer.
+     * @param board The chess board
+     * @param buffer buffer holding the token
+     * @param start index of the first byte of the token
+     * @param end index after the last byte of the token
+     * @param moves buffer that is overwritten with the legal moves of the position
+     * @return the packed move, or {@link Move#NONE} if it is not a unique legal move
+     */
+    public static int parse(ChessBoard board, ByteBuffer buffer, int start, int end, MoveList moves) {
+        // Drop check marks and annotations
+        while (end > start && "+#!?".indexOf(buffer.get(end - 1)) >= 0) end--;
+        if (end - start < 2) return Move.NONE;
+
+        MoveGenerator.generateMoves(board, moves);
+        char first = (char) buffer.get(start);
+        if (first == 'O' || first == '0') {
+            int length = end - start;
+            int file = length == 3 ? 6 : length == 5 ? 2 : -1;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (Move.flag(move) == Move.CASTLE && ChessBoard.fileOf(Move.to(move)) == file) return move;
+            }
+            return Move.NONE;
+        }
+
+        int type = "PNBRQK".indexOf(first);
+        if (type > 0) {
+            start++;
+        } else {
+            type = Piece.PAWN;
+        }
+
+        int promotion = 0;
+        int last = "NBRQ".indexOf(buffer.get(end - 1));
+        if (last >= 0) {
+            if (type != Piece.PAWN) return Move.NONE;
+            promotion = Piece.KNIGHT + last;
+            end--;
+            if (end > start && buffer.get(end - 1) == '=') end--;
+        }
+        if (end - start < 2) return Move.NONE;
+
+        int toFile = buffer.get(end - 2) - 'a';
+        int toRank = buffer.get(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) return Move.NONE;
+        int to = ChessBoard.square(toFile, toRank);
+
+        // Whatever is left between the piece and the target disambiguates the origin
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            int c = buffer.get(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.to(move) != to || Piece.typeOf(Move.piece(move)) != type) continue;
+            if (Move.flag(move) == Move.CASTLE) continue;
+            int from = Move.from(move);
+            if (fromFile >= 0 && ChessBoard.fileOf(from) != fromFile) continue;
+            if (fromRank >= 0 && ChessBoard.rankOf(from) != fromRank) continue;
+            if ((Move.flag(move) == Move.PROMOTION ? Move.promotion(move) : 0) != promotion) continue;
+            if (found != Move.NONE) return Move.NONE; // ambiguous
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * Write a legal move in SAN, with a check or mate mark
+     * @param board The chess board; it is left as it was
+     * @param move a legal move of the position
+     * @return the move, for example "Nbd7" or "exd8=Q+"
+     */
+    public static String toString(ChessBoard board, int move) {
+        StringBuilder san = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Piece.typeOf(Move.piece(move));
+        MoveList moves = new MoveList();
+        if (Move.flag(move) == Move.CASTLE) {
+            san.append(ChessBoard.fileOf(to) == 6 ? "O-O" : "O-O-O");
+        } else {
+            if (type == Piece.PAWN) {
+                if (Move.isCapture(move)) san.append((char) ('a' + ChessBoard.fileOf(from)));
+            } else {
+                san.append("PNBRQK".charAt(type));
+                // Name the file, else the rank, else both, of the origin when another piece of the same kind can go there too
+                MoveGenerator.generateMoves(board, moves);
+                boolean ambiguous = false;
+                boolean sameFile = false;
+                boolean sameRank = false;
+                for (int i = 0; i < moves.size(); i++) {
+                    int other = moves.get(i);
+                    if (other == move || Move.to(other) != to || Move.piece(other) != Move.piece(move)) continue;
+                    ambiguous = true;
+                    sameFile |= ChessBoard.fileOf(Move.from(other)) == ChessBoard.fileOf(from);
+                    sameRank |= ChessBoard.rankOf(Move.from(other)) == ChessBoard.rankOf(from);
+                }
+                if (ambiguous && (!sameFile || sameRank)) san.append((char) ('a' + ChessBoard.fileOf(from)));
+                if (ambiguous && sameFile) san.append((char) ('1' + ChessBoard.rankOf(from)));
+            }
+            if (Move.isCapture(move)) san.append('x');
+            san.append(Move.squareName(to));
+            if (Move.flag(move) == Move.PROMOTION) {
+                san.append('=').append("PNBRQK".charAt(Move.promotion(move)));
+            }
+        }
+
+        board.makeMove(move);
+        if (board.isInCheck()) {
+            MoveGenerator.generateMoves(board, moves);
+            san.append(moves.isEmpty() ? '#' : '+');
+        }
+        board.unmakeMove();
+        return san.toString();
+    }
+}
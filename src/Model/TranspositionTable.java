@@ -0,0 +1,166 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by {@link ChessBoard#key()}.
+ *
+ * The table is allocated once with a power-of-two number of entries and stored in two
+ * primitive arrays, one for the keys and one for the packed data:
+ *
+ * <pre>
+ * bits  0-31  best move
+ * bits 32-47  score
+ * bits 48-55  depth
+ * bits 56-57  bound (UPPER, LOWER or EXACT)
+ * bits 58-63  search generation
+ * </pre>
+ *
+ * The table is shared by search threads without locks. Each slot stores the key XORed
+ * with its data, and a probe only accepts the data if XORing the two words gives back
+ * the key, so a slot torn by two threads writing at once reads as a miss.
+ *
+ * Entries live in buckets of two. The first slot keeps the deepest result and is only
+ * replaced by a deeper one or by one from a newer search; the second slot always takes
+ * the newest result.
+ */
+public class TranspositionTable {
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private long[] keys; // key ^ data of each slot
+    private long[] data;
+    private int mask;
+    private int generation;
+
+    public TranspositionTable(int sizeMb) {
+        resize(sizeMb);
+    }
+
+    /**
+     * Reallocate the table, dropping every entry
+     * @param sizeMb size in megabytes; rounded down to a power-of-two number of entries
+     */
+    public void resize(int sizeMb) {
+        long entries = Math.max(2L, ((long) Math.max(1, sizeMb) << 20) / ENTRY_BYTES);
+        int capacity = (int) Long.highestOneBit(Math.min(entries, 1L << 30));
+        keys = new long[capacity];
+        data = new long[capacity];
+        mask = capacity - 2; // index of the first slot of a bucket
+        generation = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        generation = 0;
+    }
+
+    /**
+     * Start a new search, so entries from older searches are replaced first
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 63;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Look up a position
+     * @param key Zobrist key of the position
+     * @return the packed entry data, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long first = data[index];
+        if ((keys[index] ^ first) == key && first != 0) return first;
+        long second = data[index + 1];
+        if ((keys[index + 1] ^ second) == key && second != 0) return second;
+        return 0L;
+    }
+
+    /**
+     * Store a search result
+     * @param key Zobrist key of the position
+     * @param move best move found, or {@link Move#NONE}
+     * @param score score of the position
+     * @param depth remaining search depth of the result
+     * @param bound UPPER, LOWER or EXACT
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        long first = data[index];
+        long firstKey = keys[index] ^ first;
+        long old;
+        int slot;
+        if (firstKey == key) {
+            slot = index;
+            old = first;
+        } else if ((keys[index + 1] ^ data[index + 1]) == key) {
+            slot = index + 1;
+            old = data[index + 1];
+        } else if (depth >= depth(first) || generation(first) != generation) {
+            // Move the old deep entry to the always-replace slot before overwriting it
+            keys[index + 1] = firstKey ^ first;
+            data[index + 1] = first;
+            slot = index;
+            old = 0L;
+        } else {
+            slot = index + 1;
+            old = 0L;
+        }
+        // Keep the old best move when the new result has none
+        if (move == Move.NONE && old != 0) {
+            move = move(old);
+        }
+        long packed = pack(move, score, depth, bound, generation);
+        keys[slot] = key ^ packed;
+        data[slot] = packed;
+    }
+
+    /**
+     * Get how full the table is, from a sample of the first thousand entries
+     * @return used entries of the current search per thousand
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, data.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != 0 && generation(data[i]) == generation) used++;
+        }
+        return used * 1000 / sample;
+    }
+
+    static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFFFFFL)
+            | ((long) (score & 0xFFFF) << 32)
+            | ((long) (depth & 0xFF) << 48)
+            | ((long) bound << 56)
+            | ((long) generation << 58);
+    }
+
+    public static int move(long data) {
+        return (int) data;
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 32);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 56) & 3;
+    }
+
+    static int generation(long data) {
+        return (int) (data >>> 58);
+    }
+}
@@ -0,0 +1,58 @@
+package Model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys for Zobrist hashing.
+ *
+ * A position's key is the XOR of one key per piece on its square, one per castling-rights
+ * combination, one for the en-passant file and one when black is to move. XOR undoes
+ * itself, so {@link ChessBoard} updates the key incrementally as pieces come and go.
+ * The keys come from a fixed seed and are the same in every run.
+ */
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EEDC0DE2024L);
+        for (int code = 0; code < 12; code++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[code][square] = random.nextLong();
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int code, int square) {
+        return PIECE_SQUARE[code][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * Get the key for an en-passant square
+     * @param square en-passant square, or {@link ChessBoard#NO_SQUARE}
+     * @return key of the square's file, or 0 if there is no en-passant square
+     */
+    public static long enPassant(int square) {
+        return square == ChessBoard.NO_SQUARE ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
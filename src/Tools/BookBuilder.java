@@ -0,0 +1,360 @@
+package Tools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import Engine.OpeningBook;
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveList;
+import Model.Piece;
+
+/**
+ * Builds an {@link OpeningBook} from a PGN collection with bounded memory.
+ *
+ * Every move of the first plies of every game becomes a (position key, move, score)
+ * record, scored like Polyglot books: 2 for a win of the side that moved, 1 for a draw,
+ * 0 for a loss. Each PGN worker thread collects records in a fixed-size buffer of its
+ * own; when it is full that thread sorts it, merges equal moves and writes the result to
+ * a temporary run file, without holding up the other workers. The runs of all workers
+ * are then merged into the book with a k-way merge, so the collection can be far larger
+ * than the buffers. Moves played in fewer than a minimum number of games or
+ * with a weight of zero are left out, and weights of a position are scaled down together
+ * when they do not fit in 16 bits.
+ *
+ * Usage: java Tools.BookBuilder games.pgn book.bin [plies=N] [min=N] [memory=MB] [threads=N]
+ * The defaults are 20 plies, a minimum of 2 games and 64 MB, shared by the threads.
+ */
+public class BookBuilder {
+    private static final int RUN_RECORD_BYTES = 20; // key, move, weight, games
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    private final int maxPlies;
+    private final Path tempDirectory;
+    private final int bufferCapacity; // records per worker buffer
+    private final ThreadLocal<RunBuffer> buffers = ThreadLocal.withInitial(this::newBuffer);
+    private final List<RunBuffer> allBuffers = new ArrayList<>(); // guarded by itself
+    private final List<Path> runs = new ArrayList<>(); // guarded by itself
+
+    /**
+     * @param maxPlies number of moves taken from the start of each game
+     * @param memoryMb size of all record buffers together in megabytes
+     * @param threads number of threads that add moves; each gets a share of the memory
+     * @param tempDirectory where the run files go
+     */
+    public BookBuilder(int maxPlies, int memoryMb, int threads, Path tempDirectory) {
+        this.maxPlies = maxPlies;
+        this.tempDirectory = tempDirectory;
+        this.bufferCapacity = (int) Math.min(Integer.MAX_VALUE - 8, ((long) memoryMb << 20) / 12 / Math.max(1, threads));
+    }
+
+    private RunBuffer newBuffer() {
+        RunBuffer buffer = new RunBuffer(bufferCapacity);
+        synchronized (allBuffers) {
+            allBuffers.add(buffer);
+        }
+        return buffer;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: java Tools.BookBuilder games.pgn book.bin [plies=N] [min=N] [memory=MB] [threads=N]");
+            System.exit(2);
+        }
+        int plies = 20;
+        int minGames = 2;
+        int memoryMb = 64;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("plies=")) plies = Integer.parseInt(arg.substring(6));
+            else if (arg.startsWith("min=")) minGames = Integer.parseInt(arg.substring(4));
+            else if (arg.startsWith("memory=")) memoryMb = Integer.parseInt(arg.substring(7));
+            else if (arg.startsWith("threads=")) threads = Integer.parseInt(arg.substring(8));
+        }
+
+        Path book = Paths.get(args[1]);
+        Path tempDirectory = Files.createTempDirectory("book");
+        BookBuilder builder = new BookBuilder(plies, memoryMb, threads, tempDirectory);
+        long start = System.nanoTime();
+        PgnReader.Summary summary = new PgnReader(threads).read(Paths.get(args[0]), builder::add);
+        long entries = builder.finish(book, minGames);
+        Files.delete(tempDirectory);
+        System.out.println(summary);
+        System.out.printf("%d runs, %d entries, %d bytes, %.3f s%n", builder.runs.size(), entries, Files.size(book),
+            (System.nanoTime() - start) / 1e9);
+
+        // Probe speed, on the start position
+        OpeningBook opening = OpeningBook.open(book);
+        ChessBoard board = new ChessBoard();
+        int probes = 100_000;
+        long probeStart = System.nanoTime();
+        for (int i = 0; i < probes; i++) {
+            opening.probe(board);
+        }
+        System.out.printf("probe %.2f us%n", (System.nanoTime() - probeStart) / 1e3 / probes);
+        MoveList moves = new MoveList();
+        int[] weights = new int[MoveList.CAPACITY];
+        for (int i = 0; i < opening.moves(board, moves, weights); i++) {
+            System.out.println(Move.toString(moves.get(i)) + " " + weights[i]);
+        }
+    }
+
+    /**
+     * Collect one move of a game into the calling thread's buffer; see
+     * {@link PgnReader.MoveVisitor}
+     */
+    private void add(ChessBoard board, int move, int ply, int result) {
+        if (ply >= maxPlies || result == PgnReader.UNKNOWN) return;
+        int score = result == PgnReader.DRAW ? 1
+            : result == (board.sideToMove() == Piece.WHITE ? PgnReader.WHITE_WINS : PgnReader.BLACK_WINS) ? 2 : 0;
+        try {
+            buffers.get().add(board.key(), Move.toCompact(move) << 2 | score);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the book from the run files and delete them. Call it once all moves are added.
+     * @param book the book file
+     * @param minGames leave out moves played in fewer games
+     * @return number of entries written
+     */
+    public long finish(Path book, int minGames) throws IOException {
+        synchronized (allBuffers) {
+            for (RunBuffer buffer : allBuffers) {
+                buffer.writeRun();
+            }
+        }
+
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        for (Path run : runs) {
+            RunReader reader = new RunReader(run);
+            if (reader.next()) queue.add(reader);
+        }
+
+        long entries = 0;
+        int[] moves = new int[MoveList.CAPACITY];
+        long[] weights = new long[MoveList.CAPACITY];
+        int[] games = new int[MoveList.CAPACITY];
+        try (FileChannel out = FileChannel.open(book, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_BYTES);
+            while (!queue.isEmpty()) {
+                // Gather every move of one position from all runs
+                long key = queue.peek().key;
+                int moveCount = 0;
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    RunReader reader = queue.poll();
+                    int slot = 0;
+                    while (slot < moveCount && moves[slot] != reader.move) slot++;
+                    if (slot == moveCount) {
+                        if (moveCount == moves.length) throw new IOException("Too many moves for one position");
+                        moves[slot] = reader.move;
+                        weights[slot] = 0;
+                        games[slot] = 0;
+                        moveCount++;
+                    }
+                    weights[slot] += reader.weight;
+                    games[slot] += reader.games;
+                    if (reader.next()) {
+                        queue.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+                entries += writePosition(out, buffer, key, moves, weights, games, moveCount, minGames);
+            }
+            flush(out, buffer);
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+        return entries;
+    }
+
+    private static int writePosition(FileChannel out, ByteBuffer buffer, long key, int[] moves, long[] weights, int[] games,
+                                     int count, int minGames) throws IOException {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            if (games[i] >= minGames) max = Math.max(max, weights[i]);
+        }
+        int written = 0;
+        // Heaviest first; a position has few moves, so a selection pass per move is enough
+        boolean[] done = new boolean[count];
+        for (int n = 0; n < count; n++) {
+            int best = -1;
+            for (int i = 0; i < count; i++) {
+                if (!done[i] && (best < 0 || weights[i] > weights[best])) best = i;
+            }
+            done[best] = true;
+            if (games[best] < minGames || weights[best] == 0) continue;
+            long weight = max > 0xFFFF ? Math.max(1, weights[best] * 0xFFFF / max) : weights[best];
+            if (buffer.remaining() < OpeningBook.ENTRY_BYTES) flush(out, buffer);
+            buffer.putLong(key).putShort((short) moves[best]).putShort((short) weight).putInt(games[best]);
+            written++;
+        }
+        return written;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Records of one worker thread, written to a run file whenever the buffer is full
+     */
+    private final class RunBuffer {
+        private final long[] keys;
+        private final int[] values; // compact move << 2 | score
+        private int count;
+
+        RunBuffer(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        void add(long key, int value) throws IOException {
+            if (count == keys.length) writeRun();
+            keys[count] = key;
+            values[count] = value;
+            count++;
+        }
+
+        /**
+         * Sort the buffer, merge equal moves and write them to a new run file
+         */
+        void writeRun() throws IOException {
+            if (count == 0) return;
+            sort(0, count - 1);
+            Path run = Files.createTempFile(tempDirectory, "run", ".tmp");
+            synchronized (runs) {
+                runs.add(run);
+            }
+            try (FileChannel channel = FileChannel.open(run, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_BYTES - IO_BUFFER_BYTES % RUN_RECORD_BYTES);
+                int i = 0;
+                while (i < count) {
+                    long key = keys[i];
+                    int move = values[i] >>> 2;
+                    int weight = 0;
+                    int games = 0;
+                    for (; i < count && keys[i] == key && values[i] >>> 2 == move; i++) {
+                        weight += values[i] & 3;
+                        games++;
+                    }
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                    buffer.putLong(key).putInt(move).putInt(weight).putInt(games);
+                }
+                flush(channel, buffer);
+            }
+            count = 0;
+        }
+
+        /**
+         * Sort the buffer by unsigned key, then by value (quicksort on the two arrays)
+         */
+        private void sort(int low, int high) {
+            while (high - low > 16) {
+                int middle = (low + high) >>> 1;
+                long pivotKey = keys[middle];
+                int pivotValue = values[middle];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) i++;
+                    while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) j--;
+                    if (i <= j) swap(i++, j--);
+                }
+                // Recurse into the smaller half so the stack stays shallow
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && compare(keys[j], values[j], keys[j - 1], values[j - 1]) < 0; j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            long key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    private static int compare(long key, int value, long otherKey, int otherValue) {
+        int byKey = Long.compareUnsigned(key, otherKey);
+        return byKey != 0 ? byKey : Integer.compare(value, otherValue);
+    }
+
+    /**
+     * Reads the records of one run file in order
+     */
+    private static final class RunReader implements Comparable<RunReader> {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_BYTES - IO_BUFFER_BYTES % RUN_RECORD_BYTES);
+        long key;
+        int move;
+        int weight;
+        int games;
+
+        RunReader(Path run) throws IOException {
+            channel = FileChannel.open(run, StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        boolean next() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep filling until the buffer is full or the file ends
+                }
+                buffer.flip();
+                if (!buffer.hasRemaining()) return false;
+            }
+            key = buffer.getLong();
+            move = buffer.getInt();
+            weight = buffer.getInt();
+            games = buffer.getInt();
+            return true;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int byKey = Long.compareUnsigned(key, other.key);
+            return byKey != 0 ? byKey : Integer.compare(move, other.move);
+        }
+    }
+}
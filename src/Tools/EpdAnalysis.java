@@ -0,0 +1,144 @@
+package Tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Engine.AlphaBetaSearch;
+import Engine.SearchLimits;
+import Engine.SearchResult;
+import Model.ChessBoard;
+import Model.Epd;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.TranspositionTable;
+
+/**
+ * Headless batch analysis of an EPD or FEN file.
+ *
+ * Lines are read one at a time and handed to a pool of worker threads; a semaphore caps
+ * the number of lines in flight, so memory use does not depend on the size of the file.
+ * Each worker keeps its own search and hash table. For every position one tab-separated
+ * line is written as soon as it is done, so the output is not in input order; the first
+ * column is the input line number:
+ * <pre>
+ * line  position  id  legal-moves  in-check  best-move  score
+ * </pre>
+ * Lines that cannot be parsed are reported as {@code line  error  message}. Blank lines
+ * and lines starting with '#' are skipped.
+ *
+ * Usage: java Tools.EpdAnalysis input [output] [depth=N] [threads=N] [hash=MB]
+ * The defaults are standard output, depth 6, every available processor and 16 MB of
+ * hash per thread.
+ */
+public class EpdAnalysis {
+    private static final int LINES_PER_THREAD = 4;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String input = null;
+        String output = null;
+        int depth = 6;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashMb = 16;
+        for (String arg : args) {
+            if (arg.startsWith("depth=")) depth = Integer.parseInt(arg.substring(6));
+            else if (arg.startsWith("threads=")) threads = Integer.parseInt(arg.substring(8));
+            else if (arg.startsWith("hash=")) hashMb = Integer.parseInt(arg.substring(5));
+            else if (input == null) input = arg;
+            else output = arg;
+        }
+        if (input == null) {
+            System.err.println("Usage: java Tools.EpdAnalysis input [output] [depth=N] [threads=N] [hash=MB]");
+            System.exit(2);
+        }
+
+        SearchLimits limits = SearchLimits.depth(depth);
+        int tableMb = hashMb;
+        ThreadLocal<AlphaBetaSearch> searches = ThreadLocal.withInitial(
+            () -> new AlphaBetaSearch(new TranspositionTable(tableMb), limits));
+        ThreadLocal<MoveList> moveLists = ThreadLocal.withInitial(MoveList::new);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * LINES_PER_THREAD);
+        AtomicLong analysed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+             PrintWriter out = output == null
+                 ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                 : new PrintWriter(Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                inFlight.acquire();
+                String record = line;
+                long number = lineNumber;
+                workers.execute(() -> {
+                    try {
+                        String result;
+                        try {
+                            result = analyse(number, record, searches.get(), limits, moveLists.get());
+                            analysed.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            result = number + "\terror\t" + e.getMessage();
+                            failed.incrementAndGet();
+                        }
+                        synchronized (out) {
+                            out.println(result);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d positions, %d errors, %.3f s, %.1f positions/s%n", analysed.get(), failed.get(), seconds,
+            seconds > 0 ? analysed.get() / seconds : 0.0);
+    }
+
+    /**
+     * Analyse one position
+     * @param lineNumber line number in the input, written as the first column
+     * @param line EPD or FEN line
+     * @param search search of the calling worker thread
+     * @param limits search limits
+     * @param moves move buffer of the calling worker thread
+     * @return the output line
+     * @throws IllegalArgumentException if the line is not a valid position
+     */
+    static String analyse(long lineNumber, String line, AlphaBetaSearch search, SearchLimits limits, MoveList moves) {
+        Epd epd = Epd.parse(line);
+        ChessBoard board = new ChessBoard(epd.getFen());
+        MoveGenerator.generateMoves(board, moves);
+        String id = epd.getOperation("id");
+        StringBuilder result = new StringBuilder(128);
+        result.append(lineNumber).append('\t').append(board.toEpd())
+            .append('\t').append(id == null ? "-" : id)
+            .append('\t').append(moves.size())
+            .append('\t').append(board.isInCheck() ? "check" : "-");
+        if (moves.isEmpty()) {
+            result.append("\t-\t").append(board.isInCheck() ? "mated" : "stalemate");
+        } else {
+            SearchResult best = search.search(board, limits);
+            result.append('\t').append(Move.toString(best.getBestMove()))
+                .append('\t').append(best.isMate() ? "mate " + best.getMateIn() : Integer.toString(best.getScore()));
+        }
+        return result.toString();
+    }
+}
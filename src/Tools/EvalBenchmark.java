@@ -0,0 +1,74 @@
+package Tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import Engine.Evaluation;
+import Model.ChessBoard;
+import Model.MoveGenerator;
+import Model.MoveList;
+
+/**
+ * Benchmark of the static evaluation.
+ *
+ * Positions come from random games started from the {@link SearchBenchmark} positions.
+ * While playing them, the material and piece-square score the board keeps move by move
+ * is checked against a full rescan after every move and every take-back. Then the full
+ * evaluation and both ways of getting the piece-square score are timed with
+ * {@link ModelBenchmark#measure}.
+ *
+ * Usage: java Tools.EvalBenchmark [positions=N]
+ */
+public class EvalBenchmark {
+    public static void main(String[] args) {
+        int count = 4096;
+        for (String arg : args) {
+            if (arg.startsWith("positions=")) count = Integer.parseInt(arg.substring(10));
+        }
+
+        List<ChessBoard> positions = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(1);
+        MoveList moves = new MoveList();
+        long checked = 0;
+        while (positions.size() < count) {
+            for (String fen : SearchBenchmark.POSITIONS) {
+                ChessBoard board = new ChessBoard(fen);
+                for (int ply = 0; ply < 60 && positions.size() < count; ply++) {
+                    MoveGenerator.generateMoves(board, moves);
+                    if (moves.isEmpty()) break;
+                    board.makeMove(moves.get(random.nextInt(moves.size())));
+                    check(board);
+                    positions.add(new ChessBoard(board.toFen()));
+                    checked++;
+                }
+                while (board.getPly() > 0) {
+                    board.unmakeMove();
+                    check(board);
+                    checked++;
+                }
+            }
+        }
+        System.out.println(count + " positions, incremental piece-square score matched a rescan " + checked + " times");
+
+        ChessBoard[] boards = positions.toArray(new ChessBoard[0]);
+        Evaluation evaluation = new Evaluation();
+        int[] cursor = new int[1];
+        report("Evaluation.evaluate", ModelBenchmark.measure(() -> evaluation.evaluate(boards[cursor[0]++ % boards.length])));
+        report("ChessBoard.pieceSquareScore", ModelBenchmark.measure(() -> boards[cursor[0]++ % boards.length].pieceSquareScore()));
+        report("piece-square rescan", ModelBenchmark.measure(
+            () -> Evaluation.pieceSquareScoreFromScratch(boards[cursor[0]++ % boards.length])));
+        System.out.printf("Pawn structure cache hit rate %.1f%%%n", 100 * evaluation.pawnHitRate());
+        if (ModelBenchmark.sink == 42) System.out.println();
+    }
+
+    private static void check(ChessBoard board) {
+        if (board.pieceSquareScore() != Evaluation.pieceSquareScoreFromScratch(board)) {
+            throw new IllegalStateException("Incremental piece-square score is wrong after " + board.toFen());
+        }
+    }
+
+    private static void report(String name, double nanosPerCall) {
+        System.out.printf("%-30s %10.2f ns/op %14.0f evals/s%n", name, nanosPerCall, 1e9 / nanosPerCall);
+    }
+}
@@ -0,0 +1,324 @@
+package Tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.PackedPosition;
+import Model.Piece;
+import Model.San;
+
+/**
+ * Binary game database file.
+ *
+ * <pre>
+ * header   int magic, int version, long game count, long index offset
+ * games    start position ({@link PackedPosition}, 32 bytes), short move count,
+ *          byte result, one reserved byte, then one short per move ({@link Move#toCompact})
+ * index    one long file offset per game
+ * </pre>
+ *
+ * A game takes 36 bytes plus 2 bytes per move. The file is written and read through a
+ * {@link FileChannel} with reused byte buffers, so reading a game, in order or by number,
+ * creates no objects.
+ *
+ * Usage:
+ * <pre>
+ * java Tools.GameFile convert games.pgn games.bin [threads=N]
+ * java Tools.GameFile replay games.bin       read and replay every game in order
+ * java Tools.GameFile show games.bin n        print game n
+ * </pre>
+ */
+public class GameFile {
+    private static final int MAGIC = 0x4A434746; // "JCGF"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int GAME_HEADER_BYTES = PackedPosition.BYTES + 4;
+
+    private GameFile() {
+    }
+
+    public static Writer create(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    /**
+     * Appends games to a new file. The index and header are written on {@link #close()}.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long[] offsets = new long[1024];
+        private long count;
+        private long position = HEADER_BYTES;
+
+        private Writer(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        /**
+         * Append a game
+         * @param start position the game starts from
+         * @param moves the moves of the game, played from the start position
+         * @param plies number of moves
+         * @param result {@link PgnReader#UNKNOWN}, WHITE_WINS, BLACK_WINS or DRAW
+         * @throws IOException if the file cannot be written
+         */
+        public void add(ChessBoard start, int[] moves, int plies, int result) throws IOException {
+            if (plies > 0xFFFF) throw new IllegalArgumentException("Game too long: " + plies + " moves");
+            int size = GAME_HEADER_BYTES + 2 * plies;
+            if (buffer.capacity() < size) buffer = ByteBuffer.allocate(Integer.highestOneBit(size) * 2);
+            buffer.clear();
+            PackedPosition.write(start, buffer, 0);
+            buffer.putShort(PackedPosition.BYTES, (short) plies);
+            buffer.put(PackedPosition.BYTES + 2, (byte) result);
+            buffer.put(PackedPosition.BYTES + 3, (byte) 0);
+            for (int i = 0; i < plies; i++) {
+                buffer.putShort(GAME_HEADER_BYTES + 2 * i, (short) Move.toCompact(moves[i]));
+            }
+            buffer.limit(size);
+            writeFully(buffer, position);
+
+            if (count == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            offsets[(int) count++] = position;
+            position += size;
+        }
+
+        public long size() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                ByteBuffer index = ByteBuffer.allocate(8 * 1024);
+                long at = position;
+                for (int i = 0; i < count; i++) {
+                    index.putLong(offsets[i]);
+                    if (!index.hasRemaining() || i == count - 1) {
+                        index.flip();
+                        int bytes = index.remaining();
+                        writeFully(index, at);
+                        at += bytes;
+                        index.clear();
+                    }
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(position).flip();
+                writeFully(header, 0);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void writeFully(ByteBuffer source, long at) throws IOException {
+            while (source.hasRemaining()) {
+                at += channel.write(source, at);
+            }
+        }
+    }
+
+    /**
+     * Reads games by number. The index is loaded when the file is opened. A reader reuses
+     * its buffers and is meant for one thread.
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long[] offsets; // one more than the games, the last is the index offset
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        private final MoveList legalMoves = new MoveList();
+
+        private Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException("Not a game file: " + file);
+            }
+            long count = header.getLong(8);
+            long indexOffset = header.getLong(16);
+            offsets = new long[Math.toIntExact(count + 1)];
+            ByteBuffer index = ByteBuffer.allocateDirect(8 * 1024);
+            for (int i = 0; i < count; ) {
+                index.clear();
+                index.limit((int) Math.min(index.capacity(), 8 * (count - i)));
+                readFully(index, indexOffset + 8L * i);
+                index.flip();
+                while (index.hasRemaining()) {
+                    offsets[i++] = index.getLong();
+                }
+            }
+            offsets[(int) count] = indexOffset;
+        }
+
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        /**
+         * Get the number of moves of a game without reading it
+         * @param game game number, from 0
+         * @return number of moves
+         */
+        public int plies(int game) {
+            return (int) (offsets[game + 1] - offsets[game] - GAME_HEADER_BYTES) / 2;
+        }
+
+        /**
+         * Read a game
+         * @param game game number, from 0
+         * @param board set to the start position of the game
+         * @param moves filled with the moves of the game; needs room for {@link #plies(int)} moves
+         * @return the result of the game
+         * @throws IOException if the file cannot be read or the game is not valid
+         */
+        public int read(int game, ChessBoard board, int[] moves) throws IOException {
+            int size = (int) (offsets[game + 1] - offsets[game]);
+            if (buffer.capacity() < size) buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) * 2);
+            buffer.clear();
+            buffer.limit(size);
+            readFully(buffer, offsets[game]);
+
+            int plies = plies(game);
+            try {
+                PackedPosition.read(buffer, 0, board);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad start position in game " + game, e);
+            }
+            for (int i = 0; i < plies; i++) {
+                MoveGenerator.generateMoves(board, legalMoves);
+                int move = Move.fromCompact(buffer.getShort(GAME_HEADER_BYTES + 2 * i) & 0xFFFF, legalMoves);
+                if (move == Move.NONE) throw new IOException("Illegal move " + i + " in game " + game);
+                moves[i] = move;
+                board.makeMove(move);
+            }
+            for (int i = 0; i < plies; i++) {
+                board.unmakeMove();
+            }
+            return buffer.get(PackedPosition.BYTES + 2);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void readFully(ByteBuffer target, long at) throws IOException {
+            while (target.hasRemaining()) {
+                int read = channel.read(target, at);
+                if (read < 0) throw new IOException("Unexpected end of game file");
+                at += read;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 3 && args[0].equals("convert")) {
+            int threads = args.length > 3 && args[3].startsWith("threads=")
+                ? Integer.parseInt(args[3].substring(8)) : Runtime.getRuntime().availableProcessors();
+            convert(Paths.get(args[1]), Paths.get(args[2]), threads);
+        } else if (args.length == 2 && args[0].equals("replay")) {
+            replay(Paths.get(args[1]));
+        } else if (args.length == 3 && args[0].equals("show")) {
+            show(Paths.get(args[1]), Integer.parseInt(args[2]));
+        } else {
+            System.err.println("Usage: java Tools.GameFile convert games.pgn games.bin [threads=N] | replay games.bin | show games.bin n");
+            System.exit(2);
+        }
+    }
+
+    private static void convert(Path pgn, Path output, int threads) throws IOException, InterruptedException {
+        try (Writer writer = create(output)) {
+            // Each worker collects the game it is replaying and hands it over at the end
+            class Collector {
+                final ChessBoard start = new ChessBoard();
+                final ByteBuffer startBytes = ByteBuffer.allocate(PackedPosition.BYTES);
+                int[] moves = new int[256];
+            }
+            ThreadLocal<Collector> collectors = ThreadLocal.withInitial(Collector::new);
+            IOException[] failure = new IOException[1];
+            PgnReader.Summary summary = new PgnReader(threads).read(pgn, new PgnReader.MoveVisitor() {
+                @Override
+                public void visit(ChessBoard board, int move, int ply, int result) {
+                    Collector collector = collectors.get();
+                    if (ply == 0) PackedPosition.write(board, collector.startBytes, 0);
+                    if (ply == collector.moves.length) collector.moves = Arrays.copyOf(collector.moves, ply * 2);
+                    collector.moves[ply] = move;
+                }
+
+                @Override
+                public void endGame(ChessBoard board, int plies, int result) {
+                    Collector collector = collectors.get();
+                    ChessBoard start = board;
+                    if (plies > 0) {
+                        PackedPosition.read(collector.startBytes, 0, collector.start);
+                        start = collector.start;
+                    }
+                    synchronized (writer) {
+                        try {
+                            writer.add(start, collector.moves, plies, result);
+                        } catch (IOException e) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            System.out.println(summary);
+            System.out.println(writer.size() + " games written");
+        }
+        System.out.println(Files.size(output) + " bytes");
+    }
+
+    private static void replay(Path file) throws IOException {
+        long start = System.nanoTime();
+        long moves = 0;
+        try (Reader reader = open(file)) {
+            ChessBoard board = new ChessBoard();
+            int[] buffer = new int[1024];
+            for (int game = 0; game < reader.size(); game++) {
+                int plies = reader.plies(game);
+                if (plies > buffer.length) buffer = new int[plies];
+                reader.read(game, board, buffer);
+                moves += plies;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games, %d moves, %.3f s, %.0f games/s, %.0f moves/s%n", reader.size(), moves, seconds,
+                reader.size() / seconds, moves / seconds);
+        }
+    }
+
+    private static void show(Path file, int game) throws IOException {
+        try (Reader reader = open(file)) {
+            ChessBoard board = new ChessBoard();
+            int[] moves = new int[reader.plies(game)];
+            int result = reader.read(game, board, moves);
+            System.out.println(board.toFen());
+            StringBuilder line = new StringBuilder();
+            for (int move : moves) {
+                if (board.sideToMove() == Piece.WHITE) line.append(board.fullmoveNumber()).append(". ");
+                line.append(San.toString(board, move)).append(' ');
+                board.makeMove(move);
+            }
+            line.append(new String[]{"*", "1-0", "0-1", "1/2-1/2"}[result]);
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package Tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+
+/**
+ * Load test for {@link Controller.GameServer}.
+ *
+ * Opens a number of games spread over a number of connections, then plays random legal
+ * moves in all of them round-robin: each connection sends a move for one of its games,
+ * waits for the reply and goes on to its next game. A finished game is closed and
+ * replaced by a new one, so the number of open games stays constant. Every round trip is
+ * timed; at the end the move rate and latency percentiles are printed, together with the
+ * server's count of live and parked games.
+ *
+ * Usage: java Tools.GameLoadGenerator [host=H] [port=N] [games=N] [connections=N] [moves=N]
+ * The defaults are localhost, port 7070, 10000 games, 100 connections and 200000 moves.
+ */
+public class GameLoadGenerator {
+    private static final int MAX_PLIES = 200; // games are restarted after this many moves
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = 7070;
+        int games = 10_000;
+        int connections = 100;
+        long moves = 200_000;
+        for (String arg : args) {
+            if (arg.startsWith("host=")) host = arg.substring(5);
+            else if (arg.startsWith("port=")) port = Integer.parseInt(arg.substring(5));
+            else if (arg.startsWith("games=")) games = Integer.parseInt(arg.substring(6));
+            else if (arg.startsWith("connections=")) connections = Integer.parseInt(arg.substring(12));
+            else if (arg.startsWith("moves=")) moves = Long.parseLong(arg.substring(6));
+        }
+        connections = Math.min(connections, games);
+
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            int clientGames = games / connections + (i < games % connections ? 1 : 0);
+            long clientMoves = moves / connections + (i < moves % connections ? 1 : 0);
+            clients.add(new Client(new Socket(host, port), clientGames, clientMoves));
+        }
+        long setupStart = System.nanoTime();
+        runAll(clients, Client::openGames);
+        System.out.printf("%d games opened on %d connections in %.2f s%n", games, connections,
+            (System.nanoTime() - setupStart) / 1e9);
+
+        long start = System.nanoTime();
+        runAll(clients, Client::play);
+        long nanos = System.nanoTime() - start;
+
+        long[] latencies = new long[(int) moves];
+        int count = 0;
+        for (Client client : clients) {
+            System.arraycopy(client.latencies, 0, latencies, count, client.played);
+            count += client.played;
+        }
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("%d moves in %.2f s: %.0f moves/s, latency p50 %.0f us, p99 %.0f us, max %.0f us%n", count,
+            nanos / 1e9, count / (nanos / 1e9), latencies[count / 2] / 1e3, latencies[(int) (count * 0.99)] / 1e3,
+            latencies[count - 1] / 1e3);
+        System.out.println(clients.get(0).request("stats"));
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    private static void runAll(List<Client> clients, ClientTask task) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (Client client : clients) {
+            Thread thread = new Thread(() -> {
+                try {
+                    task.run(client);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Connection failed", e);
+                }
+            }, "load-client");
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private interface ClientTask {
+        void run(Client client) throws IOException;
+    }
+
+    /**
+     * One connection and its games; the client keeps its own copy of each board to pick moves
+     */
+    private static final class Client {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final BufferedWriter out;
+        private final long[] ids;
+        private final ChessBoard[] boards;
+        private final long[] latencies;
+        private final MoveList moves = new MoveList();
+        private int played;
+
+        Client(Socket socket, int games, long moves) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            ids = new long[games];
+            boards = new ChessBoard[games];
+            latencies = new long[(int) moves];
+        }
+
+        void openGames() throws IOException {
+            for (int i = 0; i < ids.length; i++) {
+                newGame(i);
+            }
+        }
+
+        void play() throws IOException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int game = 0;
+            while (played < latencies.length) {
+                ChessBoard board = boards[game];
+                MoveGenerator.generateMoves(board, moves);
+                int move = moves.get(random.nextInt(moves.size()));
+                long start = System.nanoTime();
+                String reply = request("move " + ids[game] + " " + Move.toString(move));
+                latencies[played++] = System.nanoTime() - start;
+                if (!reply.startsWith("ok ")) throw new IOException("Unexpected reply: " + reply);
+                board.makeMove(move);
+
+                if (!reply.endsWith("playing") && !reply.endsWith("check") || board.fullmoveNumber() * 2 > MAX_PLIES) {
+                    request("close " + ids[game]);
+                    newGame(game);
+                }
+                game = (game + 1) % ids.length;
+            }
+        }
+
+        private void newGame(int game) throws IOException {
+            String reply = request("new");
+            if (!reply.startsWith("game ")) throw new IOException("Unexpected reply: " + reply);
+            ids[game] = Long.parseLong(reply.substring(5));
+            boards[game] = new ChessBoard();
+        }
+
+        String request(String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+            String reply = in.readLine();
+            if (reply == null) throw new IOException("Server closed the connection");
+            return reply;
+        }
+
+        void close() throws IOException {
+            out.write("quit\n");
+            out.flush();
+            socket.close();
+        }
+    }
+}
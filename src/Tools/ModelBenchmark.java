@@ -0,0 +1,139 @@
+package Tools;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.LongSupplier;
+
+import Model.ChessBoard;
+import Model.ChessPiece;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+
+/**
+ * Micro-benchmarks for the model's hot paths, run over the {@link PerftPosition} set.
+ *
+ * Each benchmark is warmed up, then timed over several fixed-length iterations, and the
+ * best iteration is reported in nanoseconds per call. Results are folded into a sink
+ * field so the JIT cannot drop the calls. When a results file is given, the previous
+ * results in it are used as the baseline and the change is printed before the file is
+ * overwritten.
+ *
+ * Usage: java Tools.ModelBenchmark [resultsFile]
+ */
+public class ModelBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+    private static final int BATCH = 256;
+
+    static long sink;
+
+    public static void main(String[] args) throws IOException {
+        ChessBoard[] boards = new ChessBoard[PerftPosition.values().length];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new ChessBoard(PerftPosition.values()[i].getFen());
+        }
+
+        // Every legal move of every position, as {board, fromX, fromY, toX, toY}
+        MoveList moves = new MoveList();
+        int count = 0;
+        int[][] legal = new int[boards.length * MoveList.CAPACITY][];
+        for (int b = 0; b < boards.length; b++) {
+            MoveGenerator.generateMoves(boards[b], moves);
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                legal[count++] = new int[]{b, ChessBoard.fileOf(Move.from(move)), ChessBoard.rankOf(Move.from(move)),
+                    ChessBoard.fileOf(Move.to(move)), ChessBoard.rankOf(Move.to(move))};
+            }
+        }
+        final int legalCount = count;
+
+        Map<String, LongSupplier> benchmarks = new LinkedHashMap<>();
+        int[] cursor = new int[1];
+        benchmarks.put("ChessPiece.getLegalMoves", () -> {
+            int[] m = legal[cursor[0]++ % legalCount];
+            ChessPiece piece = boards[m[0]].getPieceAt(m[1], m[2]);
+            return piece.getLegalMoves(m[1], m[2], boards[m[0]]).size();
+        });
+        MoveList buffer = new MoveList();
+        benchmarks.put("MoveGenerator.generateMoves", () -> {
+            MoveGenerator.generateMoves(boards[cursor[0]++ % boards.length], buffer);
+            return buffer.size();
+        });
+        benchmarks.put("ChessBoard.isLegalMove", () -> {
+            int[] m = legal[cursor[0]++ % legalCount];
+            return boards[m[0]].isLegalMove(m[1], m[2], m[3], m[4]) ? 1 : 0;
+        });
+        benchmarks.put("ChessBoard.movePiece", () -> {
+            int[] m = legal[cursor[0]++ % legalCount];
+            ChessBoard board = boards[m[0]];
+            board.movePiece(m[1], m[2], m[3], m[4]);
+            long key = board.key();
+            board.unmakeMove();
+            return key;
+        });
+
+        Path resultsFile = args.length > 0 ? Paths.get(args[0]) : null;
+        Properties baseline = new Properties();
+        if (resultsFile != null && Files.exists(resultsFile)) {
+            try (Reader reader = Files.newBufferedReader(resultsFile)) {
+                baseline.load(reader);
+            }
+        }
+
+        Properties results = new Properties();
+        for (Map.Entry<String, LongSupplier> benchmark : benchmarks.entrySet()) {
+            double nanosPerCall = measure(benchmark.getValue());
+            results.setProperty(benchmark.getKey(), String.format("%.2f", nanosPerCall));
+            String line = String.format("%-30s %10.2f ns/op %14.0f ops/s", benchmark.getKey(), nanosPerCall, 1e9 / nanosPerCall);
+            String before = baseline.getProperty(benchmark.getKey());
+            if (before != null) {
+                double baselineNanos = Double.parseDouble(before);
+                line += String.format("   baseline %.2f ns/op (%+.1f%%)", baselineNanos, 100.0 * (nanosPerCall - baselineNanos) / baselineNanos);
+            }
+            System.out.println(line);
+        }
+
+        if (resultsFile != null) {
+            try (Writer writer = Files.newBufferedWriter(resultsFile)) {
+                results.store(writer, "Tools.ModelBenchmark results in ns/op");
+            }
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    /**
+     * Time a benchmark
+     * @param op one call of the code under test
+     * @return best nanoseconds per call over the measured iterations
+     */
+    static double measure(LongSupplier op) {
+        double best = Double.MAX_VALUE;
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS + MEASURE_ITERATIONS; iteration++) {
+            long calls = 0;
+            long result = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (int i = 0; i < BATCH; i++) {
+                    result += op.getAsLong();
+                }
+                calls += BATCH;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < ITERATION_NANOS);
+            sink += result;
+            if (iteration >= WARMUP_ITERATIONS) {
+                best = Math.min(best, (double) elapsed / calls);
+            }
+        }
+        return best;
+    }
+}
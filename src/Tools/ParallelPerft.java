@@ -0,0 +1,170 @@
+package Tools;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+
+/**
+ * Perft split over a fork-join pool.
+ *
+ * The root moves (and, with a split depth of 2, the replies to them) become fork-join
+ * tasks. Each task works on its own copy of the {@link ChessBoard}, and each worker
+ * thread keeps its own {@link Perft} so move lists are never shared. Workers can share
+ * one lock-free {@link PerftHashTable}. The counts are the same as a single-threaded run.
+ *
+ * Usage:
+ * <pre>
+ * java Tools.ParallelPerft depth [position|fen] [threads=N] [hash=MB] [split=1|2] [divide] [scaling]
+ * </pre>
+ * scaling runs the same perft with 1, 2, 4 ... up to N threads and prints the speedup.
+ */
+public class ParallelPerft {
+    private final int splitDepth;
+    private final PerftHashTable hashTable;
+    private final ThreadLocal<Perft> perfts;
+
+    /**
+     * @param splitDepth number of plies split into tasks, 1 or 2
+     * @param hashTable table shared by all workers, or null
+     */
+    public ParallelPerft(int splitDepth, PerftHashTable hashTable) {
+        this.splitDepth = splitDepth;
+        this.hashTable = hashTable;
+        this.perfts = ThreadLocal.withInitial(() -> new Perft(hashTable));
+    }
+
+    /**
+     * Count the leaf nodes to a depth
+     * @param pool pool to run the tasks in
+     * @param board The chess board; it is not modified
+     * @param depth depth in plies
+     * @param divide where to print the count under each root move, or null
+     * @return number of leaf nodes
+     */
+    public long count(ForkJoinPool pool, ChessBoard board, int depth, PrintStream divide) {
+        if (depth <= splitDepth) {
+            return new Perft(hashTable).count(new ChessBoard(board), depth);
+        }
+        MoveList moves = new MoveList();
+        MoveGenerator.generateMoves(board, moves);
+        List<SubtreeTask> tasks = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            tasks.add(new SubtreeTask(board, moves.get(i), depth - 1, splitDepth - 1));
+        }
+        for (SubtreeTask task : tasks) {
+            pool.execute(task);
+        }
+        long total = 0;
+        for (SubtreeTask task : tasks) {
+            long nodes = task.join();
+            if (divide != null) divide.println(Move.toString(task.move) + ": " + nodes);
+            total += nodes;
+        }
+        return total;
+    }
+
+    /**
+     * Counts the subtree below one move, on its own board copy
+     */
+    private class SubtreeTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final ChessBoard board;
+        private final int move;
+        private final int depth;
+        private final int splitsLeft;
+
+        SubtreeTask(ChessBoard parent, int move, int depth, int splitsLeft) {
+            this.board = new ChessBoard(parent);
+            this.move = move;
+            this.depth = depth;
+            this.splitsLeft = splitsLeft;
+        }
+
+        @Override
+        protected Long compute() {
+            board.makeMove(move);
+            if (splitsLeft <= 0 || depth <= 1) {
+                return perfts.get().count(board, depth);
+            }
+            MoveList moves = new MoveList();
+            MoveGenerator.generateMoves(board, moves);
+            List<SubtreeTask> children = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                children.add(new SubtreeTask(board, moves.get(i), depth - 1, splitsLeft - 1));
+            }
+            invokeAll(children);
+            long nodes = 0;
+            for (SubtreeTask child : children) {
+                nodes += child.join();
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java Tools.ParallelPerft depth [position|fen] [threads=N] [hash=MB] [split=1|2] [divide] [scaling]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = ChessBoard.STARTING_FEN;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashMb = 0;
+        int split = 1;
+        boolean divide = false;
+        boolean scaling = false;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("threads=")) threads = Integer.parseInt(arg.substring(8));
+            else if (arg.startsWith("hash=")) hashMb = Integer.parseInt(arg.substring(5));
+            else if (arg.startsWith("split=")) split = Integer.parseInt(arg.substring(6));
+            else if (arg.equals("divide")) divide = true;
+            else if (arg.equals("scaling")) scaling = true;
+            else fen = Perft.positionFen(arg);
+        }
+        ChessBoard board = new ChessBoard(fen);
+
+        if (!scaling) {
+            long nodes = run(board, depth, threads, hashMb, split, divide ? System.out : null);
+            System.out.println("Nodes: " + nodes);
+            return;
+        }
+
+        // Single-threaded reference count, then 1, 2, 4 ... threads
+        long start = System.nanoTime();
+        long expected = new Perft().count(board, depth);
+        long singleNanos = System.nanoTime() - start;
+        System.out.printf("reference   %12d  %s%n", expected, Perft.formatSpeed(expected, singleNanos));
+        long baseNanos = 0;
+        for (int n = 1; ; n = Math.min(n * 2, threads)) {
+            start = System.nanoTime();
+            long nodes = run(board, depth, n, hashMb, split, null);
+            long nanos = System.nanoTime() - start;
+            if (n == 1) baseNanos = nanos;
+            System.out.printf("threads %-3d %12d  %s  speedup %.2fx%s%n", n, nodes, Perft.formatSpeed(nodes, nanos),
+                (double) baseNanos / nanos, nodes == expected ? "" : "  MISMATCH, expected " + expected);
+            if (n == threads) break;
+        }
+    }
+
+    private static long run(ChessBoard board, int depth, int threads, int hashMb, int split, PrintStream divide) {
+        PerftHashTable table = hashMb > 0 ? new PerftHashTable(hashMb) : null;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            long nodes = new ParallelPerft(split, table).count(pool, board, depth, divide);
+            if (divide != null) System.out.println(Perft.formatSpeed(nodes, System.nanoTime() - start));
+            return nodes;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package Tools;
+
+import java.io.PrintStream;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+
+/**
+ * Perft: counts the leaf nodes of the legal move tree to a fixed depth.
+ *
+ * Comparing the counts with known values is the standard correctness test for move
+ * generation, and the time it takes measures make/unmake and generation speed.
+ *
+ * Usage:
+ * <pre>
+ * java Tools.Perft                        run every standard position up to 10M nodes
+ * java Tools.Perft suite [maxDepth]       run every standard position up to maxDepth
+ * java Tools.Perft depth [position|fen] [divide]
+ * </pre>
+ * where position is one of the {@link PerftPosition} names.
+ */
+public class Perft {
+    private static final int MAX_DEPTH = 64;
+    private static final long DEFAULT_SUITE_NODES = 10_000_000L;
+
+    private final MoveList[] moveLists = new MoveList[MAX_DEPTH + 1];
+    private final PerftHashTable hashTable;
+
+    public Perft() {
+        this(null);
+    }
+
+    /**
+     * Create a perft counter that caches subtree counts
+     * @param hashTable table to cache subtree counts in, may be shared between threads, or null
+     */
+    public Perft(PerftHashTable hashTable) {
+        this.hashTable = hashTable;
+        for (int i = 0; i <= MAX_DEPTH; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Count the leaf nodes to a depth. The last ply is counted from the size of the
+     * move list instead of being made (bulk counting).
+     * @param board The chess board; it is left as it was
+     * @param depth depth in plies
+     * @return number of leaf nodes
+     */
+    public long count(ChessBoard board, int depth) {
+        if (hashTable != null && depth > 1) {
+            long cached = hashTable.probe(board.key(), depth);
+            if (cached >= 0) return cached;
+        }
+        MoveList moves = moveLists[depth];
+        MoveGenerator.generateMoves(board, moves);
+        if (depth <= 1) {
+            return depth == 1 ? moves.size() : 1;
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += count(board, depth - 1);
+            board.unmakeMove();
+        }
+        if (hashTable != null) {
+            hashTable.store(board.key(), depth, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * Count the leaf nodes under each root move and print one line per move
+     * @param board The chess board; it is left as it was
+     * @param depth depth in plies, at least 1
+     * @param out where the per-move counts go
+     * @return total number of leaf nodes
+     */
+    public long divide(ChessBoard board, int depth, PrintStream out) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateMoves(board, moves);
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            long nodes = count(board, depth - 1);
+            board.unmakeMove();
+            out.println(Move.toString(move) + ": " + nodes);
+            total += nodes;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].equals("suite")) {
+            int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+            long maxNodes = args.length > 1 ? Long.MAX_VALUE : DEFAULT_SUITE_NODES;
+            boolean passed = runSuite(maxDepth, maxNodes, System.out);
+            System.out.println(passed ? "All counts match" : "MISMATCH");
+            if (!passed) System.exit(1);
+            return;
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        String fen = args.length > 1 ? positionFen(args[1]) : ChessBoard.STARTING_FEN;
+        boolean divide = args.length > 2 && args[2].equals("divide");
+
+        ChessBoard board = new ChessBoard(fen);
+        Perft perft = new Perft();
+        long start = System.nanoTime();
+        long nodes = divide ? perft.divide(board, depth, System.out) : perft.count(board, depth);
+        long nanos = System.nanoTime() - start;
+        System.out.println("Nodes: " + nodes);
+        System.out.println(formatSpeed(nodes, nanos));
+    }
+
+    /**
+     * Run every standard position and compare the counts with the known values
+     * @param maxDepth deepest depth to run
+     * @param maxNodes skip depths whose expected count is larger than this
+     * @param out where the report goes
+     * @return true if every count matched
+     */
+    public static boolean runSuite(int maxDepth, long maxNodes, PrintStream out) {
+        Perft perft = new Perft();
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (PerftPosition position : PerftPosition.values()) {
+            ChessBoard board = new ChessBoard(position.getFen());
+            for (int depth = 1; depth <= Math.min(maxDepth, position.maxDepth()); depth++) {
+                long expected = position.expectedNodes(depth);
+                if (expected > maxNodes) break;
+                long start = System.nanoTime();
+                long nodes = perft.count(board, depth);
+                long nanos = System.nanoTime() - start;
+                boolean ok = nodes == expected;
+                passed &= ok;
+                totalNodes += nodes;
+                totalNanos += nanos;
+                out.printf("%-18s depth %d  %12d  %s  %s%n", position, depth, nodes,
+                    ok ? "ok" : "expected " + expected, formatSpeed(nodes, nanos));
+            }
+        }
+        out.println("Total: " + totalNodes + " nodes, " + formatSpeed(totalNodes, totalNanos));
+        return passed;
+    }
+
+    static String positionFen(String nameOrFen) {
+        for (PerftPosition position : PerftPosition.values()) {
+            if (position.name().equalsIgnoreCase(nameOrFen)) return position.getFen();
+        }
+        return nameOrFen;
+    }
+
+    static String formatSpeed(long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        return String.format("%.3f s, %.0f nodes/s", seconds, seconds > 0 ? nodes / seconds : 0.0);
+    }
+}
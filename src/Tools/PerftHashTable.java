@@ -0,0 +1,42 @@
+package Tools;
+
+/**
+ * A lock-free hash table of perft subtree counts that many threads can share.
+ *
+ * Each entry is two longs: the packed data (node count and depth) and the position key
+ * XORed with that data. Threads read and write without locks; a reader recomputes the
+ * key from both words and ignores the entry if it does not match, so an entry torn by
+ * two racing writers is never trusted.
+ */
+public class PerftHashTable {
+    private final long[] table;
+    private final int mask;
+
+    public PerftHashTable(int sizeMb) {
+        long entries = Math.max(1L, ((long) Math.max(1, sizeMb) << 20) / 16);
+        int capacity = (int) Long.highestOneBit(Math.min(entries, 1L << 29));
+        table = new long[capacity * 2];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Look up the node count of a subtree
+     * @param key Zobrist key of the position
+     * @param depth depth of the subtree
+     * @return node count, or -1 if it is not stored
+     */
+    public long probe(long key, int depth) {
+        int index = ((int) key & mask) << 1;
+        long check = table[index];
+        long data = table[index + 1];
+        if ((check ^ data) != key || (data & 0xFF) != depth) return -1;
+        return data >>> 8;
+    }
+
+    public void store(long key, int depth, long nodes) {
+        int index = ((int) key & mask) << 1;
+        long data = (nodes << 8) | depth;
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+}
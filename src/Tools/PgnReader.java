@@ -0,0 +1,386 @@
+package Tools;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveList;
+import Model.San;
+
+/**
+ * Replays PGN game collections through the model.
+ *
+ * The file is memory-mapped in windows of up to {@value #WINDOW_BYTES} bytes, so files
+ * larger than 2 GB can be read. The reading thread only looks for game boundaries and
+ * cuts each window into batches of whole games, which worker threads then replay: tags
+ * are scanned for the result and a starting FEN, and every SAN token of the movetext is
+ * resolved in place in the mapped buffer against the legal moves (see {@link San}), so
+ * no strings are created per move. Comments, variations, move numbers and NAGs are
+ * skipped. A game stops at the first move that cannot be resolved and counts as an error.
+ *
+ * Usage: java Tools.PgnReader file.pgn [threads=N]
+ */
+public class PgnReader {
+    public static final int UNKNOWN = 0;
+    public static final int WHITE_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int DRAW = 3;
+
+    private static final int WINDOW_BYTES = 1 << 28;
+    private static final int BATCH_BYTES = 1 << 20;
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /**
+     * Receives the moves of every game replayed. It is called on the worker threads, so
+     * it must be thread-safe.
+     */
+    public interface MoveVisitor {
+        /**
+         * Called before each move is made
+         * @param board position before the move; must be left unchanged
+         * @param move the move about to be made
+         * @param ply number of moves already made in the game
+         * @param result result of the game: UNKNOWN, WHITE_WINS, BLACK_WINS or DRAW
+         */
+        void visit(ChessBoard board, int move, int ply, int result);
+
+        /**
+         * Called after the last move of a game whose moves were all resolved
+         * @param board position at the end of the game; must be left unchanged
+         * @param plies number of moves made in the game
+         * @param result result of the game: UNKNOWN, WHITE_WINS, BLACK_WINS or DRAW
+         */
+        default void endGame(ChessBoard board, int plies, int result) {
+        }
+    }
+
+    /**
+     * Counts of one run
+     */
+    public static final class Summary {
+        private final long games;
+        private final long moves;
+        private final long errors;
+        private final long nanos;
+
+        Summary(long games, long moves, long errors, long nanos) {
+            this.games = games;
+            this.moves = moves;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+
+        /**
+         * @return number of games that stopped at a move that could not be resolved
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = nanos / 1e9;
+            return String.format("%d games, %d moves, %d errors, %.3f s, %.0f games/s, %.0f moves/s", games, moves, errors,
+                seconds, seconds > 0 ? games / seconds : 0.0, seconds > 0 ? moves / seconds : 0.0);
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * @param threads number of worker threads
+     */
+    public PgnReader(int threads) {
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String file = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("threads=")) threads = Integer.parseInt(arg.substring(8));
+            else file = arg;
+        }
+        if (file == null) {
+            System.err.println("Usage: java Tools.PgnReader file.pgn [threads=N]");
+            System.exit(2);
+        }
+        System.out.println(new PgnReader(threads).read(Paths.get(file), null));
+    }
+
+    /**
+     * Replay every game of a PGN file
+     * @param file the PGN file
+     * @param visitor receives every move, or null to only count them
+     * @return the counts
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Summary read(Path file, MoveVisitor visitor) throws IOException, InterruptedException {
+        LongAdder games = new LongAdder();
+        LongAdder moves = new LongAdder();
+        LongAdder errors = new LongAdder();
+        ThreadLocal<Replayer> replayers = ThreadLocal.withInitial(() -> new Replayer(visitor, games, moves, errors));
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * BATCHES_PER_THREAD);
+
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+                // A game cut by the end of the window is read again at the start of the next one
+                int end = lastWindow ? length : lastGameStart(window, length);
+                if (end == 0) throw new IOException("Game longer than " + WINDOW_BYTES + " bytes at offset " + position);
+
+                int batchStart = 0;
+                while (batchStart < end) {
+                    int batchEnd = Math.min(end, batchStart + BATCH_BYTES);
+                    if (batchEnd < end) {
+                        batchEnd = nextGameStart(window, batchEnd, end);
+                    }
+                    int from = batchStart;
+                    int to = batchEnd;
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        try {
+                            replayers.get().replayGames(window, from, to);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    batchStart = batchEnd;
+                }
+                position += end;
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return new Summary(games.sum(), moves.sum(), errors.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * Find the start of the first game at or after an index: a line starting with '['
+     * that follows movetext
+     */
+    private static int nextGameStart(MappedByteBuffer buffer, int from, int end) {
+        boolean inMovetext = false;
+        int i = from;
+        // Start at a line boundary
+        while (i > 0 && i < end && buffer.get(i - 1) != '\n') i++;
+        while (i < end) {
+            byte c = buffer.get(i);
+            if (c == '[') {
+                if (inMovetext) return i;
+            } else if (c != '\n' && c != '\r' && c != ' ' && c != '\t') {
+                inMovetext = true;
+            }
+            // Skip to the next line
+            while (i < end && buffer.get(i) != '\n') i++;
+            i++;
+        }
+        return end;
+    }
+
+    /**
+     * Find the start of the last game in a window, so a window can end before it
+     */
+    private static int lastGameStart(MappedByteBuffer buffer, int length) {
+        int i = length - 1;
+        while (i > 0) {
+            // Walk back to a line start holding a tag; the game starts at its first tag line
+            while (i > 0 && buffer.get(i - 1) != '\n') i--;
+            if (buffer.get(i) == '[') {
+                int tagStart = i;
+                int before = i - 1;
+                while (before > 0) {
+                    int lineStart = before;
+                    while (lineStart > 0 && buffer.get(lineStart - 1) != '\n') lineStart--;
+                    if (buffer.get(lineStart) == '[') {
+                        tagStart = lineStart;
+                    } else if (!isBlankLine(buffer, lineStart, before)) {
+                        return tagStart;
+                    }
+                    before = lineStart - 1;
+                }
+                return 0;
+            }
+            i--;
+        }
+        return 0;
+    }
+
+    private static boolean isBlankLine(MappedByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte c = buffer.get(i);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Per-thread state for replaying games
+     */
+    private static final class Replayer {
+        private final MoveVisitor visitor;
+        private final LongAdder games;
+        private final LongAdder moves;
+        private final LongAdder errors;
+        private final ChessBoard board = new ChessBoard();
+        private final MoveList scratch = new MoveList();
+
+        Replayer(MoveVisitor visitor, LongAdder games, LongAdder moves, LongAdder errors) {
+            this.visitor = visitor;
+            this.games = games;
+            this.moves = moves;
+            this.errors = errors;
+        }
+
+        void replayGames(MappedByteBuffer buffer, int start, int end) {
+            int i = start;
+            while (i < end) {
+                int gameEnd = nextGameStart(buffer, i + 1, end);
+                replayGame(buffer, i, gameEnd);
+                i = gameEnd;
+            }
+        }
+
+        private void replayGame(MappedByteBuffer buffer, int start, int end) {
+            int result = UNKNOWN;
+            String fen = ChessBoard.STARTING_FEN;
+            boolean hasMovetext = false;
+
+            // Tag pairs; only Result and FEN matter here
+            int i = start;
+            while (i < end) {
+                byte c = buffer.get(i);
+                if (c == '[') {
+                    int lineEnd = i;
+                    while (lineEnd < end && buffer.get(lineEnd) != '\n') lineEnd++;
+                    if (startsWith(buffer, i, lineEnd, "[Result ")) {
+                        result = parseResult(buffer, i + 8, lineEnd);
+                    } else if (startsWith(buffer, i, lineEnd, "[FEN ")) {
+                        fen = tagValue(buffer, i + 5, lineEnd);
+                    }
+                    i = lineEnd + 1;
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                    i++;
+                } else {
+                    hasMovetext = true;
+                    break;
+                }
+            }
+            if (!hasMovetext) return;
+
+            try {
+                board.setFen(fen);
+            } catch (IllegalArgumentException e) {
+                games.increment();
+                errors.increment();
+                return;
+            }
+
+            int ply = 0;
+            boolean failed = false;
+            int depth = 0; // nesting of variations
+            while (i < end) {
+                byte c = buffer.get(i);
+                if (c == '{') {
+                    while (i < end && buffer.get(i) != '}') i++;
+                    i++;
+                } else if (c == ';' || (c == '%' && (i == 0 || buffer.get(i - 1) == '\n'))) {
+                    while (i < end && buffer.get(i) != '\n') i++;
+                } else if (c == '(') {
+                    depth++;
+                    i++;
+                } else if (c == ')') {
+                    depth--;
+                    i++;
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '.') {
+                    i++;
+                } else {
+                    int tokenEnd = i;
+                    while (tokenEnd < end && !isDelimiter(buffer.get(tokenEnd))) tokenEnd++;
+                    if (depth == 0 && c != '$' && c != '*' && !(c >= '0' && c <= '9' && !isCastling(buffer, i, tokenEnd))) {
+                        int move = San.parse(board, buffer, i, tokenEnd, scratch);
+                        if (move == Move.NONE) {
+                            errors.increment();
+                            failed = true;
+                            break;
+                        }
+                        if (visitor != null) visitor.visit(board, move, ply, result);
+                        board.makeMove(move);
+                        ply++;
+                    } else if (depth == 0 && result == UNKNOWN && (c == '1' || c == '0' || c == '*')) {
+                        result = parseResult(buffer, i, tokenEnd);
+                    }
+                    i = tokenEnd;
+                }
+            }
+            games.increment();
+            moves.add(ply);
+            if (visitor != null && !failed) visitor.endGame(board, ply, result);
+        }
+
+        private static boolean isDelimiter(byte c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '{' || c == '(' || c == ')' || c == ';'
+                || c == '.';
+        }
+
+        private static boolean isCastling(MappedByteBuffer buffer, int start, int end) {
+            return end - start >= 3 && buffer.get(start) == '0' && buffer.get(start + 1) == '-' && buffer.get(start + 2) == '0';
+        }
+
+        private static boolean startsWith(MappedByteBuffer buffer, int start, int end, String prefix) {
+            if (end - start < prefix.length()) return false;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (buffer.get(start + i) != prefix.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private static int parseResult(MappedByteBuffer buffer, int start, int end) {
+            while (start < end && (buffer.get(start) == '"' || buffer.get(start) == ' ')) start++;
+            if (end - start >= 3 && buffer.get(start + 1) == '/') return DRAW;
+            if (startsWith(buffer, start, end, "1-0")) return WHITE_WINS;
+            if (startsWith(buffer, start, end, "0-1")) return BLACK_WINS;
+            return UNKNOWN;
+        }
+
+        private static String tagValue(MappedByteBuffer buffer, int start, int end) {
+            StringBuilder value = new StringBuilder();
+            int i = start;
+            while (i < end && buffer.get(i) != '"') i++;
+            for (i++; i < end && buffer.get(i) != '"'; i++) {
+                value.append((char) buffer.get(i));
+            }
+            return value.toString();
+        }
+    }
+}
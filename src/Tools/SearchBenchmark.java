@@ -0,0 +1,63 @@
+package Tools;
+
+import Engine.AlphaBetaSearch;
+import Engine.EngineMetrics;
+import Engine.SearchLimits;
+import Engine.SearchResult;
+import Model.ChessBoard;
+import Model.Move;
+import Model.TranspositionTable;
+
+/**
+ * Runs the search over a fixed set of positions and reports the depth reached, nodes
+ * and nodes per second, so engine changes can be compared.
+ *
+ * Usage: java Tools.SearchBenchmark [depth=N | time=ms] [hash=MB]
+ * The default is a fixed depth of 8.
+ */
+public class SearchBenchmark {
+    static final String[] POSITIONS = {
+        ChessBoard.STARTING_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+        "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+        "r1bq1rk1/ppp2ppp/2np1n2/2b1p3/2B1P3/2NP1N2/PPP2PPP/R1BQ1RK1 w - - 0 7",
+        "r2q1rk1/pp2bppp/2n1bn2/3p4/3P4/2NBBN2/PP3PPP/R2Q1RK1 w - - 0 11",
+        "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1",
+        "8/5pk1/6p1/8/3R4/6P1/5PK1/3r4 w - - 0 40",
+        "r1b1k2r/ppppnppp/2n2q2/2b5/3NP3/2P1B3/PP3PPP/RN1QKB1R w KQkq - 0 1"
+    };
+
+    public static void main(String[] args) {
+        SearchLimits limits = SearchLimits.depth(8);
+        int hashMb = 64;
+        for (String arg : args) {
+            if (arg.startsWith("depth=")) limits = SearchLimits.depth(Integer.parseInt(arg.substring(6)));
+            else if (arg.startsWith("time=")) limits = SearchLimits.time(Long.parseLong(arg.substring(5)));
+            else if (arg.startsWith("hash=")) hashMb = Integer.parseInt(arg.substring(5));
+        }
+
+        long totalNodes = 0;
+        long totalNanos = 0;
+        int totalDepth = 0;
+        for (String fen : POSITIONS) {
+            AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(hashMb), limits);
+            long start = System.nanoTime();
+            SearchResult result = search.search(new ChessBoard(fen), limits);
+            long nanos = System.nanoTime() - start;
+            totalNodes += search.getNodes();
+            totalNanos += nanos;
+            totalDepth += result.getDepth();
+            System.out.printf("depth %2d  score %6d  %-6s %10d nodes  %s%n", result.getDepth(), result.getScore(),
+                Move.toString(result.getBestMove()), search.getNodes(), Perft.formatSpeed(search.getNodes(), nanos));
+        }
+        System.out.printf("Average depth %.1f, %d nodes, %s%n", (double) totalDepth / POSITIONS.length, totalNodes,
+            Perft.formatSpeed(totalNodes, totalNanos));
+        EngineMetrics metrics = EngineMetrics.get();
+        System.out.printf("Hash hit rate %.1f%%, %.1f moves generated per node%n", 100 * metrics.getTranspositionHitRate(),
+            (double) metrics.getMovesGenerated() / Math.max(1, metrics.getNodes()));
+    }
+}
@@ -0,0 +1,47 @@
+package Tools;
+
+import Engine.LazySmpSearch;
+import Engine.SearchLimits;
+import Model.ChessBoard;
+import Model.TranspositionTable;
+
+/**
+ * Measures how the multi-threaded search scales: the {@link SearchBenchmark} positions are
+ * searched to a fixed depth with 1, 2, 4, ... threads, each position starting from an
+ * empty hash table, and the time to reach the depth is compared with one thread.
+ *
+ * Usage: java Tools.SmpBenchmark [depth=N] [threads=N] [hash=MB]
+ * The defaults are depth 9, every available processor and 64 MB.
+ */
+public class SmpBenchmark {
+    public static void main(String[] args) {
+        int depth = 9;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int hashMb = 64;
+        for (String arg : args) {
+            if (arg.startsWith("depth=")) depth = Integer.parseInt(arg.substring(6));
+            else if (arg.startsWith("threads=")) maxThreads = Integer.parseInt(arg.substring(8));
+            else if (arg.startsWith("hash=")) hashMb = Integer.parseInt(arg.substring(5));
+        }
+
+        SearchLimits limits = SearchLimits.depth(depth);
+        TranspositionTable table = new TranspositionTable(hashMb);
+        long singleThreadNanos = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+            LazySmpSearch search = new LazySmpSearch(table, limits, threads);
+            long totalNodes = 0;
+            long totalNanos = 0;
+            for (String fen : SearchBenchmark.POSITIONS) {
+                table.clear();
+                long start = System.nanoTime();
+                search.search(new ChessBoard(fen), limits);
+                totalNanos += System.nanoTime() - start;
+                totalNodes += search.getNodes();
+            }
+            search.setThreads(1); // shut down the helper threads
+            if (threads == 1) singleThreadNanos = totalNanos;
+            System.out.printf("threads %2d  depth %d  %12d nodes  %s  time-to-depth speedup %.2f%n", threads, depth,
+                totalNodes, Perft.formatSpeed(totalNodes, totalNanos), (double) singleThreadNanos / totalNanos);
+        }
+    }
+}
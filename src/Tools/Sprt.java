@@ -0,0 +1,152 @@
+package Tools;
+
+/**
+ * Running match statistics: Elo difference with a 95% error margin and a sequential
+ * probability ratio test (SPRT) between two Elo hypotheses.
+ *
+ * The test asks whether engine A is at least {@code elo1} stronger than B (H1) or at most
+ * {@code elo0} (H0). After every game the log-likelihood ratio is updated with the normal
+ * approximation of the game score distribution (wins, draws and losses, so draws count).
+ * H1 is accepted once it rises above {@code ln((1 - beta) / alpha)} and H0 once it falls
+ * below {@code ln(beta / (1 - alpha))}; in between, more games are needed.
+ *
+ * The variance is estimated with half a pseudo-game added to each outcome, as fishtest
+ * does. Otherwise it is zero while one side has won every game (or every game was drawn),
+ * and a lopsided match would never be decided until the streak ends. With a few hundred
+ * games the pseudo-games make no visible difference.
+ *
+ * Not thread-safe; the tournament updates it under its own lock.
+ */
+public final class Sprt {
+    private static final double PSEUDO_GAMES = 0.5; // added to each outcome for the variance
+    public static final int CONTINUE = 0;
+    public static final int ACCEPT_H0 = 1;
+    public static final int ACCEPT_H1 = 2;
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+    private int wins;
+    private int draws;
+    private int losses;
+
+    /**
+     * @param elo0 Elo difference of the null hypothesis
+     * @param elo1 Elo difference of the alternative hypothesis, above elo0
+     * @param alpha chance of accepting H1 when H0 holds
+     * @param beta chance of accepting H0 when H1 holds
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) {
+            throw new IllegalArgumentException("elo1 must be above elo0: " + elo0 + ", " + elo1);
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * Count a game
+     * @param score 1 for a win of A, 0.5 for a draw, 0 for a loss
+     */
+    public void add(double score) {
+        if (score > 0.5) wins++;
+        else if (score < 0.5) losses++;
+        else draws++;
+    }
+
+    public int games() {
+        return wins + draws + losses;
+    }
+
+    public int wins() {
+        return wins;
+    }
+
+    public int draws() {
+        return draws;
+    }
+
+    public int losses() {
+        return losses;
+    }
+
+    /**
+     * @return average score of A per game, or 0.5 before the first game
+     */
+    public double score() {
+        int games = games();
+        return games > 0 ? (wins + 0.5 * draws) / games : 0.5;
+    }
+
+    /**
+     * @return Elo difference of A over B; infinite when one side won every game
+     */
+    public double elo() {
+        return elo(score());
+    }
+
+    /**
+     * @return half the width of the 95% confidence interval of {@link #elo()}; infinite
+     * when the interval reaches a score of 0 or 1
+     */
+    public double eloError() {
+        int games = games();
+        if (games < 2) return Double.POSITIVE_INFINITY;
+        double margin = 1.96 * Math.sqrt(variance() / games);
+        return (elo(Math.min(1, score() + margin)) - elo(Math.max(0, score() - margin))) / 2;
+    }
+
+    /**
+     * @return log-likelihood ratio of H1 against H0
+     */
+    public double llr() {
+        double variance = variance();
+        if (variance <= 0) return 0;
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games() * (s1 - s0) * (2 * score() - s0 - s1) / (2 * variance);
+    }
+
+    public double lowerBound() {
+        return lowerBound;
+    }
+
+    public double upperBound() {
+        return upperBound;
+    }
+
+    /**
+     * @return CONTINUE, ACCEPT_H0 or ACCEPT_H1
+     */
+    public int decision() {
+        double llr = llr();
+        if (llr >= upperBound) return ACCEPT_H1;
+        if (llr <= lowerBound) return ACCEPT_H0;
+        return CONTINUE;
+    }
+
+    /**
+     * Variance of the score of one game, with {@link #PSEUDO_GAMES} added to each outcome
+     * so it is above zero
+     */
+    private double variance() {
+        if (games() == 0) return 0;
+        double w = wins + PSEUDO_GAMES;
+        double d = draws + PSEUDO_GAMES;
+        double l = losses + PSEUDO_GAMES;
+        double n = w + d + l;
+        double mean = (w + 0.5 * d) / n;
+        return (w * (1 - mean) * (1 - mean) + d * (0.5 - mean) * (0.5 - mean) + l * mean * mean) / n;
+    }
+
+    private static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+}
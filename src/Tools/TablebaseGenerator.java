@@ -0,0 +1,460 @@
+package Tools;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Engine.Tablebase;
+import Engine.Tablebases;
+import Model.Attacks;
+import Model.ChessBoard;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.Piece;
+
+/**
+ * Generates {@link Tablebase} files by retrograde analysis.
+ *
+ * First every index is set up on a {@link ChessBoard} and its legal moves are generated:
+ * mates and stalemates are final, moves that stay in the table are counted, and moves
+ * that leave it (captures and promotions) are looked up in smaller tables, which are
+ * generated first. Then the results spread backwards one ply per round: the positions
+ * decided in the last round are walked back by un-moving each piece of the side that
+ * just moved, a predecessor of a lost position is won, and a predecessor all of whose
+ * moves lead to won positions is lost once its last such move is decided. Whatever is
+ * left undecided at the end is a draw.
+ *
+ * Both passes split the indices over all worker threads. Predecessors are updated with
+ * atomic operations on the shared arrays, so threads need no locks.
+ *
+ * Usage: java Tools.TablebaseGenerator directory table... [threads=N]
+ * for example {@code java Tools.TablebaseGenerator tb KQvK KRvK KPvK KBNvK KQvKR}
+ */
+public class TablebaseGenerator {
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    // Encoding of the best move that leaves the table, per position
+    private static final int EXIT_WIN = 0x80; // | plies to mate
+    private static final int EXIT_DRAW = 0x7F; // otherwise plies to be mated, or 0 if no such move
+    private static final int MAX_DISTANCE = 126;
+
+    private final Path directory;
+    private final Tablebases tablebases = new Tablebases();
+    private final Set<String> generated = new HashSet<>();
+    private final ExecutorService workers;
+    private final int chunks;
+
+    /**
+     * @param directory where tables are read from and written to
+     * @param threads number of worker threads
+     */
+    public TablebaseGenerator(Path directory, int threads) {
+        this.directory = directory;
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tablebase-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.chunks = threads * 16;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> names = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("threads=")) threads = Integer.parseInt(args[i].substring(8));
+            else names.add(args[i]);
+        }
+        if (names.isEmpty()) {
+            System.err.println("Usage: java Tools.TablebaseGenerator directory table... [threads=N]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        TablebaseGenerator generator = new TablebaseGenerator(directory, threads);
+        for (String name : names) {
+            generator.generate(name);
+        }
+    }
+
+    /**
+     * Generate a table and the smaller tables it depends on, or load them if their files exist
+     * @param name material, for example "KQvKR"; must be named strongest side first
+     * @return the table
+     * @throws IOException if a table cannot be written or read
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Tablebase generate(String name) throws IOException, InterruptedException {
+        int[] codes = Tablebase.pieceCodes(name);
+        if (!name.equals(canonicalName(codes, -1, -1))) {
+            throw new IllegalArgumentException("Tables are named strongest side first: " + canonicalName(codes, -1, -1));
+        }
+        generated.add(name);
+        Path file = directory.resolve(name + ".tb");
+        if (Files.exists(file)) {
+            Tablebase table = Tablebase.open(file);
+            tablebases.add(table);
+            return table;
+        }
+
+        // Captures and promotions lead into smaller tables
+        for (int slot = 0; slot < codes.length; slot++) {
+            int type = Piece.typeOf(codes[slot]);
+            if (type == Piece.KING) continue;
+            generateIfNeeded(canonicalName(codes, slot, -1));
+            if (type == Piece.PAWN) {
+                for (int promotion = Piece.KNIGHT; promotion <= Piece.QUEEN; promotion++) {
+                    generateIfNeeded(canonicalName(codes, slot, Piece.code(Piece.colorOf(codes[slot]), promotion)));
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        Generation generation = new Generation(codes);
+        generation.run();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(generation.values);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Tablebase table = Tablebase.open(file);
+        tablebases.add(table);
+        generation.report(name, System.nanoTime() - start);
+        return table;
+    }
+
+    private void generateIfNeeded(String name) throws IOException, InterruptedException {
+        // Kings alone need no table
+        if (name.length() > 3 && !generated.contains(name)) generate(name);
+    }
+
+    /**
+     * Name the table of a material after taking one piece off and optionally putting another on
+     */
+    private static String canonicalName(int[] codes, int removedSlot, int addedCode) {
+        int[] keys = new int[2];
+        for (int slot = 0; slot < codes.length; slot++) {
+            if (slot == removedSlot || Piece.typeOf(codes[slot]) == Piece.KING) continue;
+            keys[Piece.colorOf(codes[slot])] += 1 << (3 * Piece.typeOf(codes[slot]));
+        }
+        if (addedCode >= 0) keys[Piece.colorOf(addedCode)] += 1 << (3 * Piece.typeOf(addedCode));
+        return Tablebase.name(keys[Piece.WHITE], keys[Piece.BLACK]);
+    }
+
+    /**
+     * Working state for generating one table
+     */
+    private final class Generation {
+        private final int[] codes;
+        private final int pieces;
+        private final int size;
+        private final byte[] values;
+        private final byte[] counters; // moves into the table not yet known to lose
+        private final byte[] exits;
+        private final AtomicInteger lastScheduled = new AtomicInteger();
+
+        Generation(int[] codes) {
+            this.codes = codes;
+            this.pieces = codes.length;
+            this.size = 2 << (6 * pieces);
+            this.values = new byte[size];
+            this.counters = new byte[size];
+            this.exits = new byte[size];
+        }
+
+        void run() throws InterruptedException {
+            forEachChunk(this::initialize);
+            for (int round = 1; ; round++) {
+                if (round > MAX_DISTANCE) throw new IllegalStateException("Distance to mate too long");
+                int distance = round;
+                AtomicInteger decided = new AtomicInteger();
+                forEachChunk((from, to) -> decided.addAndGet(propagate(from, to, distance)));
+                if (decided.get() == 0 && round >= lastScheduled.get()) break;
+            }
+        }
+
+        private void forEachChunk(ChunkTask task) throws InterruptedException {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            int chunkSize = (size + chunks - 1) / chunks;
+            for (int from = 0; from < size; from += chunkSize) {
+                int start = from;
+                int end = Math.min(size, from + chunkSize);
+                tasks.add(() -> {
+                    task.run(start, end);
+                    return null;
+                });
+            }
+            for (Future<Void> result : workers.invokeAll(tasks)) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Tablebase worker failed", e.getCause());
+                }
+            }
+        }
+
+        /**
+         * Set up every index of a range on a board and classify its moves
+         */
+        private void initialize(int from, int to) {
+            ChessBoard board = new ChessBoard();
+            MoveList moves = new MoveList();
+            int[] squares = new int[pieces];
+            for (int index = from; index < to; index++) {
+                if (!decode(index, squares)) {
+                    values[index] = (byte) Tablebase.INVALID;
+                    continue;
+                }
+                board.setPosition(codes, squares, pieces, index & 1);
+                MoveGenerator.generateMoves(board, moves);
+                if (moves.isEmpty()) {
+                    values[index] = (byte) (board.isInCheck() ? 1 : Tablebase.DRAW);
+                    continue;
+                }
+
+                int inside = 0;
+                int win = Integer.MAX_VALUE; // fastest mate through a move that leaves the table
+                int loss = 0; // slowest mate against us through such a move
+                boolean draw = false;
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    if (!Move.isCapture(move) && Move.flag(move) != Move.PROMOTION) {
+                        inside++;
+                        continue;
+                    }
+                    board.makeMove(move);
+                    int value = tablebases.probe(board);
+                    board.unmakeMove();
+                    if (value == Tablebases.NOT_FOUND) throw new IllegalStateException("Missing table for " + board.toFen());
+                    if (Tablebase.isLoss(value)) {
+                        win = Math.min(win, Tablebase.distance(value) + 1);
+                    } else if (Tablebase.isWin(value)) {
+                        loss = Math.max(loss, Tablebase.distance(value) + 1);
+                    } else {
+                        draw = true;
+                    }
+                }
+                if (win > MAX_DISTANCE && win != Integer.MAX_VALUE || loss > MAX_DISTANCE) {
+                    throw new IllegalStateException("Distance to mate too long");
+                }
+
+                counters[index] = (byte) inside;
+                if (win != Integer.MAX_VALUE) {
+                    exits[index] = (byte) (EXIT_WIN | win);
+                    if (inside == 0) {
+                        values[index] = (byte) (win + 1);
+                        scheduled(win + 1);
+                    } else {
+                        scheduled(win);
+                    }
+                } else if (draw) {
+                    exits[index] = (byte) EXIT_DRAW;
+                } else {
+                    exits[index] = (byte) loss;
+                    if (inside == 0) {
+                        values[index] = (byte) (loss + 1);
+                        scheduled(loss + 1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Decide the positions of a range that are won or lost in the given number of plies
+         * @return number of positions decided
+         */
+        private int propagate(int from, int to, int distance) {
+            int[] squares = new int[pieces];
+            int decided = 0;
+            for (int index = from; index < to; index++) {
+                int value = values[index] & 0xFF;
+                if (value == Tablebase.DRAW) {
+                    int exit = exits[index] & 0xFF;
+                    if (exit == (EXIT_WIN | distance) && BYTES.compareAndSet(values, index, (byte) 0, (byte) (distance + 1))) {
+                        decided++;
+                    }
+                    continue;
+                }
+                // Walk back from the positions decided in the previous round
+                if (value != distance) continue;
+                decode(index, squares);
+                boolean lost = Tablebase.isLoss(value);
+                decided += unmove(squares, index & 1, lost, distance);
+            }
+            return decided;
+        }
+
+        /**
+         * Update every predecessor of a decided position
+         * @return number of predecessors decided
+         */
+        private int unmove(int[] squares, int side, boolean lost, int distance) {
+            int mover = side ^ 1;
+            long occupied = 0;
+            for (int square : squares) {
+                occupied |= 1L << square;
+            }
+            int decided = 0;
+            for (int slot = 0; slot < pieces; slot++) {
+                int code = codes[slot];
+                if (Piece.colorOf(code) != mover) continue;
+                int to = squares[slot];
+                int type = Piece.typeOf(code);
+                long origins;
+                if (type == Piece.PAWN) {
+                    int back = mover == Piece.WHITE ? -8 : 8;
+                    int single = to + back;
+                    origins = 0;
+                    if ((occupied & (1L << single)) == 0) {
+                        int originRank = ChessBoard.rankOf(single);
+                        if (originRank != 0 && originRank != 7) origins |= 1L << single;
+                        if (ChessBoard.rankOf(to) == (mover == Piece.WHITE ? 3 : 4) && (occupied & (1L << (single + back))) == 0) {
+                            origins |= 1L << (single + back);
+                        }
+                    }
+                } else {
+                    origins = Attacks.of(type, mover, to, occupied) & ~occupied;
+                }
+
+                while (origins != 0) {
+                    int origin = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    squares[slot] = origin;
+                    int predecessor = encode(squares, mover);
+                    squares[slot] = to;
+                    if (values[predecessor] != Tablebase.DRAW) continue; // invalid or decided already
+
+                    if (lost) {
+                        // The mover can reach a lost position, so the predecessor is won
+                        if (BYTES.compareAndSet(values, predecessor, (byte) 0, (byte) (distance + 1))) decided++;
+                    } else if (decrement(counters, predecessor) == 0) {
+                        // Every move inside the table loses; the moves leaving it decide the rest
+                        int exit = exits[predecessor] & 0xFF;
+                        if ((exit & EXIT_WIN) != 0 || exit == EXIT_DRAW) continue;
+                        int loss = Math.max(distance, exit);
+                        BYTES.setVolatile(values, predecessor, (byte) (loss + 1));
+                        if (loss == distance) {
+                            decided++;
+                        } else {
+                            scheduled(loss + 1);
+                        }
+                    }
+                }
+            }
+            return decided;
+        }
+
+        /**
+         * Atomically decrease a counter; a compare-and-set loop, since byte getAndAdd is
+         * not reliably compiled on every JDK 17 build
+         * @return the new count
+         */
+        private int decrement(byte[] array, int index) {
+            byte count;
+            do {
+                count = (byte) BYTES.getVolatile(array, index);
+            } while (!BYTES.compareAndSet(array, index, count, (byte) (count - 1)));
+            return count - 1;
+        }
+
+        private void scheduled(int round) {
+            lastScheduled.accumulateAndGet(round, Math::max);
+        }
+
+        /**
+         * Read the squares of an index and check that they form a legal position
+         * @return false if the index is not a legal position or not the canonical index of one
+         */
+        private boolean decode(int index, int[] squares) {
+            long occupied = 0;
+            for (int slot = 0; slot < pieces; slot++) {
+                int square = (index >>> (1 + 6 * slot)) & 63;
+                squares[slot] = square;
+                if ((occupied & (1L << square)) != 0) return false;
+                occupied |= 1L << square;
+                int code = codes[slot];
+                if (Piece.typeOf(code) == Piece.PAWN && (ChessBoard.rankOf(square) == 0 || ChessBoard.rankOf(square) == 7)) {
+                    return false;
+                }
+                // Equal pieces are indexed in square order only
+                if (slot > 0 && codes[slot - 1] == code && squares[slot - 1] > square) return false;
+            }
+
+            // The side that just moved must not be in check
+            int side = index & 1;
+            long king = 0;
+            for (int slot = 0; slot < pieces; slot++) {
+                if (codes[slot] == Piece.code(side ^ 1, Piece.KING)) king = 1L << squares[slot];
+            }
+            for (int slot = 0; slot < pieces; slot++) {
+                int code = codes[slot];
+                if (Piece.colorOf(code) != side) continue;
+                if ((Attacks.of(Piece.typeOf(code), side, squares[slot], occupied) & king) != 0) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Index a position, putting equal pieces in square order
+         */
+        private int encode(int[] squares, int side) {
+            int index = side;
+            for (int slot = 0; slot < pieces; slot++) {
+                int square = squares[slot];
+                if (slot > 0 && codes[slot - 1] == codes[slot] && squares[slot - 1] > square) {
+                    // Swap with the previous equal piece; tables have at most two equal pieces
+                    int previous = squares[slot - 1];
+                    index = (index & ~(63 << (1 + 6 * (slot - 1)))) | (square << (1 + 6 * (slot - 1)));
+                    square = previous;
+                }
+                index |= square << (1 + 6 * slot);
+            }
+            return index;
+        }
+
+        void report(String name, long nanos) {
+            long wins = 0;
+            long losses = 0;
+            long draws = 0;
+            int longest = 0;
+            for (byte b : values) {
+                int value = b & 0xFF;
+                if (value == Tablebase.INVALID) continue;
+                if (Tablebase.isWin(value)) {
+                    wins++;
+                    longest = Math.max(longest, Tablebase.distance(value));
+                } else if (Tablebase.isLoss(value)) {
+                    losses++;
+                    longest = Math.max(longest, Tablebase.distance(value));
+                } else {
+                    draws++;
+                }
+            }
+            System.out.printf("%-6s %10d positions: %d won, %d lost, %d drawn, longest mate %d plies, %.1f s%n", name,
+                wins + losses + draws, wins, losses, draws, longest, nanos / 1e9);
+        }
+    }
+
+    private interface ChunkTask {
+        void run(int from, int to);
+    }
+}
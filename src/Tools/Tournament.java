@@ -0,0 +1,409 @@
+package Tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import Engine.AlphaBetaSearch;
+import Engine.SearchLimits;
+import Engine.SearchResult;
+import Engine.Tablebases;
+import Model.ChessBoard;
+import Model.Epd;
+import Model.Move;
+import Model.MoveGenerator;
+import Model.MoveList;
+import Model.Piece;
+import Model.San;
+import Model.TranspositionTable;
+
+/**
+ * Headless self-play match between two engine configurations, A and B, for testing
+ * engine changes.
+ *
+ * Games run concurrently on a pool of worker threads, one game per thread, and each
+ * worker keeps a search and hash table per configuration. Every opening is played twice
+ * with colours swapped. Openings come from an EPD/FEN file, from the positions after the
+ * first plies of the games in a PGN file, or from short random sequences of legal moves.
+ * Moves are searched against a chess clock (base time plus increment); a side that runs
+ * out of time, or whose search returns no legal move, loses. Games are adjudicated as won
+ * once both sides agree for several moves that one side is winning clearly, and as drawn
+ * once the score stays near 0 for long.
+ *
+ * Every finished game is appended to the output PGN file at once, and a line with the
+ * running Elo difference and SPRT log-likelihood ratio is printed. The match stops early
+ * when the SPRT accepts a hypothesis. Only Engine, Model and Tools classes are loaded.
+ *
+ * Usage: java Tools.Tournament a=SPEC b=SPEC [games=N] [concurrency=N] [tc=BASE+INC]
+ *        [openings=file.epd|file.pgn] [plies=N] [out=games.pgn] [elo0=N] [elo1=N]
+ *        [alpha=N] [beta=N]
+ * SPEC is a comma-separated list of depth=N, nodes=N, hash=MB and tb=directory, for
+ * example "nodes=20000,hash=8". tc is in milliseconds, 1000+10 by default.
+ */
+public class Tournament {
+    private static final int MAX_PLIES = 400;
+    private static final int RESIGN_SCORE = 800;
+    private static final int RESIGN_PLIES = 6; // consecutive moves both sides agree
+    private static final int DRAW_SCORE = 10;
+    private static final int DRAW_PLIES = 12;
+    private static final int DRAW_MIN_PLY = 80;
+    private static final int RANDOM_OPENING_PLIES = 8;
+
+    /**
+     * One engine configuration
+     */
+    static final class Player {
+        final String name;
+        final String spec;
+        final SearchLimits limits;
+        final int hashMb;
+        final Tablebases tablebases; // or null
+
+        /**
+         * @throws IllegalArgumentException if the spec has an unknown key
+         */
+        Player(String name, String spec) throws IOException {
+            this.name = name;
+            this.spec = spec;
+            int depth = 0;
+            long nodes = 0;
+            int hash = 16;
+            Tablebases tables = null;
+            for (String option : spec.split(",")) {
+                if (option.isEmpty()) continue;
+                if (option.startsWith("depth=")) depth = Integer.parseInt(option.substring(6));
+                else if (option.startsWith("nodes=")) nodes = Long.parseLong(option.substring(6));
+                else if (option.startsWith("hash=")) hash = Integer.parseInt(option.substring(5));
+                else if (option.startsWith("tb=")) tables = Tablebases.load(Paths.get(option.substring(3)));
+                else throw new IllegalArgumentException("Unknown engine option: " + option);
+            }
+            this.limits = new SearchLimits(depth, nodes, 0);
+            this.hashMb = hash;
+            this.tablebases = tables;
+        }
+
+        AlphaBetaSearch newSearch() {
+            AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(hashMb), limits);
+            search.setTablebases(tablebases);
+            return search;
+        }
+    }
+
+    /**
+     * Result of one game
+     */
+    static final class Game {
+        final String result; // "1-0", "0-1" or "1/2-1/2"
+        final String termination;
+        final String pgn;
+
+        Game(String result, String termination, String pgn) {
+            this.result = result;
+            this.termination = termination;
+            this.pgn = pgn;
+        }
+    }
+
+    private final Player a;
+    private final Player b;
+    private final long baseMillis;
+    private final long incrementMillis;
+    private final Sprt sprt;
+    private final PrintWriter out;
+    private final int totalGames;
+    private volatile boolean stopped;
+    private long startNanos;
+
+    Tournament(Player a, Player b, long baseMillis, long incrementMillis, Sprt sprt, PrintWriter out, int totalGames) {
+        this.a = a;
+        this.b = b;
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+        this.sprt = sprt;
+        this.out = out;
+        this.totalGames = totalGames;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String specA = null;
+        String specB = null;
+        int games = 1000;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        long base = 1000;
+        long increment = 10;
+        String openingsFile = null;
+        int plies = RANDOM_OPENING_PLIES;
+        String output = "tournament.pgn";
+        double elo0 = 0;
+        double elo1 = 5;
+        double alpha = 0.05;
+        double beta = 0.05;
+        for (String arg : args) {
+            if (arg.startsWith("a=")) specA = arg.substring(2);
+            else if (arg.startsWith("b=")) specB = arg.substring(2);
+            else if (arg.startsWith("games=")) games = Integer.parseInt(arg.substring(6));
+            else if (arg.startsWith("concurrency=")) concurrency = Integer.parseInt(arg.substring(12));
+            else if (arg.startsWith("tc=")) {
+                String[] parts = arg.substring(3).split("\\+");
+                base = Long.parseLong(parts[0]);
+                increment = parts.length > 1 ? Long.parseLong(parts[1]) : 0;
+            }
+            else if (arg.startsWith("openings=")) openingsFile = arg.substring(9);
+            else if (arg.startsWith("plies=")) plies = Integer.parseInt(arg.substring(6));
+            else if (arg.startsWith("out=")) output = arg.substring(4);
+            else if (arg.startsWith("elo0=")) elo0 = Double.parseDouble(arg.substring(5));
+            else if (arg.startsWith("elo1=")) elo1 = Double.parseDouble(arg.substring(5));
+            else if (arg.startsWith("alpha=")) alpha = Double.parseDouble(arg.substring(6));
+            else if (arg.startsWith("beta=")) beta = Double.parseDouble(arg.substring(5));
+        }
+        if (specA == null || specB == null) {
+            System.err.println("Usage: java Tools.Tournament a=SPEC b=SPEC [games=N] [concurrency=N] [tc=BASE+INC]"
+                + " [openings=file.epd|file.pgn] [plies=N] [out=games.pgn] [elo0=N] [elo1=N] [alpha=N] [beta=N]");
+            System.exit(2);
+        }
+
+        List<String> openings = openingsFile == null ? randomOpenings((games + 1) / 2, plies)
+            : loadOpenings(Paths.get(openingsFile), plies);
+        if (openings.isEmpty()) {
+            System.err.println("No openings in " + openingsFile);
+            System.exit(1);
+        }
+        Player a = new Player("A", specA);
+        Player b = new Player("B", specB);
+        System.out.printf("A: %s%nB: %s%n%d games, %d at a time, %d+%d ms, %d openings, SPRT elo0=%.1f elo1=%.1f%n",
+            specA, specB, games, concurrency, base, increment, openings.size(), elo0, elo1);
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8))) {
+            Tournament tournament = new Tournament(a, b, base, increment, new Sprt(elo0, elo1, alpha, beta), out, games);
+            tournament.run(openings, concurrency);
+        }
+    }
+
+    /**
+     * Play the match; returns when all games are played or the SPRT has decided
+     * @param openings starting positions as FEN, used in turn
+     * @param concurrency number of games played at once
+     */
+    void run(List<String> openings, int concurrency) throws InterruptedException {
+        ThreadLocal<AlphaBetaSearch[]> searches = ThreadLocal.withInitial(
+            () -> new AlphaBetaSearch[]{a.newSearch(), b.newSearch()});
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "tournament");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startNanos = System.nanoTime();
+        for (int i = 0; i < totalGames; i++) {
+            int number = i;
+            String opening = openings.get(i / 2 % openings.size());
+            workers.execute(() -> {
+                if (stopped) return;
+                AlphaBetaSearch[] pair = searches.get();
+                boolean aIsWhite = (number & 1) == 0;
+                Game game = play(number + 1, opening, aIsWhite ? pair[0] : pair[1], aIsWhite ? pair[1] : pair[0],
+                    aIsWhite ? a : b, aIsWhite ? b : a);
+                record(game, aIsWhite);
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Play one game
+     * @param round game number, for the PGN
+     * @param fen starting position
+     * @return the result and the game as PGN
+     */
+    Game play(int round, String fen, AlphaBetaSearch white, AlphaBetaSearch black, Player whitePlayer, Player blackPlayer) {
+        ChessBoard board = new ChessBoard(fen);
+        AlphaBetaSearch[] engines = {white, black};
+        Player[] players = {whitePlayer, blackPlayer};
+        for (AlphaBetaSearch engine : engines) {
+            engine.clearHash();
+        }
+        long[] clock = {baseMillis, baseMillis};
+        MoveList moves = new MoveList();
+        StringBuilder movetext = new StringBuilder(2048);
+        int resignCount = 0;
+        int resignSign = 0;
+        int drawCount = 0;
+        String result;
+        String termination;
+
+        for (int ply = 0; ; ply++) {
+            MoveGenerator.generateMoves(board, moves);
+            int side = board.sideToMove();
+            if (moves.isEmpty()) {
+                if (board.isInCheck()) {
+                    result = side == Piece.WHITE ? "0-1" : "1-0";
+                    termination = "checkmate";
+                } else {
+                    result = "1/2-1/2";
+                    termination = "stalemate";
+                }
+                break;
+            }
+            if (board.isThreefoldRepetition() || board.isFiftyMoveRule() || isInsufficientMaterial(board)) {
+                result = "1/2-1/2";
+                termination = "draw by rule";
+                break;
+            }
+            if (ply >= MAX_PLIES) {
+                result = "1/2-1/2";
+                termination = "adjudication: game too long";
+                break;
+            }
+
+            long budget = Math.max(1, Math.min(clock[side] / 30 + incrementMillis * 3 / 4, clock[side] / 2));
+            long start = System.nanoTime();
+            SearchResult searched = engines[side].search(board, players[side].limits.withTime(budget));
+            clock[side] -= (System.nanoTime() - start) / 1_000_000L;
+            if (clock[side] < 0) {
+                result = side == Piece.WHITE ? "0-1" : "1-0";
+                termination = "time forfeit";
+                break;
+            }
+            clock[side] += incrementMillis;
+
+            int move = searched.getBestMove();
+            if (!moves.contains(move)) {
+                // Scored like a time forfeit, so the game still counts for the statistics
+                result = side == Piece.WHITE ? "0-1" : "1-0";
+                termination = move == Move.NONE ? "no move returned" : "illegal move " + Move.toString(move);
+                break;
+            }
+            if (side == Piece.WHITE) movetext.append(board.fullmoveNumber()).append(". ");
+            else if (ply == 0) movetext.append(board.fullmoveNumber()).append("... ");
+            movetext.append(San.toString(board, move)).append(' ');
+            board.makeMove(move);
+
+            // Adjudicate on the scores both engines report, seen from white
+            int score = side == Piece.WHITE ? searched.getScore() : -searched.getScore();
+            int sign = Integer.signum(score);
+            if (Math.abs(score) >= RESIGN_SCORE && sign == resignSign) {
+                resignCount++;
+            } else {
+                resignCount = Math.abs(score) >= RESIGN_SCORE ? 1 : 0;
+                resignSign = sign;
+            }
+            if (resignCount >= RESIGN_PLIES) {
+                result = sign > 0 ? "1-0" : "0-1";
+                termination = "adjudication: decisive score";
+                break;
+            }
+            drawCount = Math.abs(score) <= DRAW_SCORE ? drawCount + 1 : 0;
+            if (ply >= DRAW_MIN_PLY && drawCount >= DRAW_PLIES) {
+                result = "1/2-1/2";
+                termination = "adjudication: drawn score";
+                break;
+            }
+        }
+
+        StringBuilder pgn = new StringBuilder(movetext.length() + 512);
+        pgn.append("[Event \"Tournament\"]\n")
+            .append("[Round \"").append(round).append("\"]\n")
+            .append("[White \"").append(whitePlayer.name).append(' ').append(whitePlayer.spec).append("\"]\n")
+            .append("[Black \"").append(blackPlayer.name).append(' ').append(blackPlayer.spec).append("\"]\n")
+            .append("[Result \"").append(result).append("\"]\n")
+            .append("[SetUp \"1\"]\n")
+            .append("[FEN \"").append(fen).append("\"]\n")
+            .append("[TimeControl \"").append(baseMillis / 1000.0).append('+').append(incrementMillis / 1000.0).append("\"]\n")
+            .append("[Termination \"").append(termination).append("\"]\n\n")
+            .append(movetext).append(result).append("\n\n");
+        return new Game(result, termination, pgn.toString());
+    }
+
+    /**
+     * Write a game and update the statistics; called by the worker threads
+     */
+    private synchronized void record(Game game, boolean aIsWhite) {
+        out.print(game.pgn);
+        out.flush();
+        double whiteScore = game.result.equals("1-0") ? 1 : game.result.equals("0-1") ? 0 : 0.5;
+        sprt.add(aIsWhite ? whiteScore : 1 - whiteScore);
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%5d/%d  A %d - B %d - draw %d  Elo %+.1f +/- %.1f  LLR %.2f [%.2f, %.2f]  %.1f games/s%n",
+            sprt.games(), totalGames, sprt.wins(), sprt.losses(), sprt.draws(), sprt.elo(), sprt.eloError(),
+            sprt.llr(), sprt.lowerBound(), sprt.upperBound(), sprt.games() / seconds);
+        int decision = sprt.decision();
+        if (decision != Sprt.CONTINUE && !stopped) {
+            stopped = true;
+            System.out.println(decision == Sprt.ACCEPT_H1 ? "SPRT: H1 accepted, A is stronger" : "SPRT: H0 accepted, A is not stronger");
+        }
+    }
+
+    /**
+     * Check for positions no sequence of legal moves can mate in: bare kings, or kings and
+     * one knight or bishop
+     */
+    static boolean isInsufficientMaterial(ChessBoard board) {
+        long minors = 0;
+        for (int color = Piece.WHITE; color <= Piece.BLACK; color++) {
+            if ((board.pieces(color, Piece.PAWN) | board.pieces(color, Piece.ROOK) | board.pieces(color, Piece.QUEEN)) != 0) {
+                return false;
+            }
+            minors |= board.pieces(color, Piece.KNIGHT) | board.pieces(color, Piece.BISHOP);
+        }
+        return Long.bitCount(minors) <= 1;
+    }
+
+    /**
+     * Read openings from an EPD or FEN file, one per line, or from the position after the
+     * given number of plies of every game in a PGN file
+     */
+    static List<String> loadOpenings(Path file, int plies) throws IOException, InterruptedException {
+        List<String> openings = new ArrayList<>();
+        if (file.toString().toLowerCase().endsWith(".pgn")) {
+            List<String> found = Collections.synchronizedList(new ArrayList<>());
+            new PgnReader(Runtime.getRuntime().availableProcessors()).read(file, (board, move, ply, result) -> {
+                if (ply == plies) found.add(board.toFen());
+            });
+            openings.addAll(found);
+            // Worker threads finish games in any order; sort so runs are repeatable
+            Collections.sort(openings);
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank() || line.startsWith("#")) continue;
+                    openings.add(Epd.parse(line).getFen());
+                }
+            }
+        }
+        return openings;
+    }
+
+    /**
+     * Make openings by playing random legal moves from the starting position, with a fixed
+     * seed so runs are repeatable
+     */
+    static List<String> randomOpenings(int count, int plies) {
+        SplittableRandom random = new SplittableRandom(2024);
+        MoveList moves = new MoveList();
+        List<String> openings = new ArrayList<>(count);
+        while (openings.size() < count) {
+            ChessBoard board = new ChessBoard();
+            for (int ply = 0; ply < plies; ply++) {
+                MoveGenerator.generateMoves(board, moves);
+                if (moves.isEmpty()) break;
+                board.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            MoveGenerator.generateMoves(board, moves);
+            if (!moves.isEmpty()) openings.add(board.toFen());
+        }
+        return openings;
+    }
+}
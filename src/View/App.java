@@ -1,7 +1,9 @@
 package View;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.BorderLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Paths;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -10,10 +12,37 @@ import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import com.formdev.flatlaf.FlatDarculaLaf;
 
+import Controller.ChessController;
+import Engine.AlphaBetaSearch;
+import Engine.EngineMetrics;
+import Engine.OpeningBook;
+import Engine.SearchLimits;
+import Engine.SearchResult;
 import Model.ChessBoard;
+import Model.Move;
+import Model.Piece;
+import Model.TranspositionTable;
 
-public class App { 
+public class App {
+    private static final long THINKING_MILLIS = 2000;
+
+    /**
+     * Start the game window for two players. With "computer" or "computer=white|black" the
+     * computer plays a side (black by default), and with "book=FILE" it plays from an
+     * opening book first.
+     */
     public static void main(String[] args) throws Exception {
+        int color = -1;
+        OpeningBook book = null;
+        for (String arg : args) {
+            if (arg.equals("computer") || arg.equals("computer=black")) color = Piece.BLACK;
+            else if (arg.equals("computer=white")) color = Piece.WHITE;
+            else if (arg.startsWith("book=")) book = OpeningBook.open(Paths.get(arg.substring(5)));
+        }
+        int computerColor = color;
+        OpeningBook openingBook = book;
+        EngineMetrics.register();
+
         // Apply FlatLaf look and feel
         try {
             UIManager.setLookAndFeel(new FlatDarculaLaf());
@@ -29,10 +58,51 @@ public class App {
 
             ChessBoard board = new ChessBoard();
             ChessBoardView boardView = new ChessBoardView(board);
-            frame.add(boardView);
+            ChessController controller = new ChessController(board, boardView);
+            boardView.setController(controller);
+
+            // The engine thinks on a background thread; the window only shows its progress
+            AlphaBetaSearch engine = new AlphaBetaSearch(new TranspositionTable(64), SearchLimits.time(THINKING_MILLIS));
+            if (computerColor >= 0) controller.setComputerOpponent(engine, computerColor);
+            controller.setOpeningBook(openingBook);
+            JLabel status = new JLabel(" ");
+            controller.setSearchListener(result -> status.setText(describe(result)));
+
+            JButton hint = new JButton("Hint");
+            hint.addActionListener(e -> controller.startHint(engine, boardView::setHint));
+            JButton moveNow = new JButton("Move now");
+            moveNow.addActionListener(e -> controller.moveNow());
+            JButton undo = new JButton("Undo");
+            undo.addActionListener(e -> {
+                controller.undo();
+                boardView.setHint(Move.NONE);
+            });
+
+            JPanel buttons = new JPanel();
+            buttons.add(hint);
+            buttons.add(moveNow);
+            buttons.add(undo);
+            JPanel south = new JPanel(new BorderLayout());
+            south.add(buttons, BorderLayout.WEST);
+            south.add(status, BorderLayout.CENTER);
+
+            frame.add(boardView, BorderLayout.CENTER);
+            frame.add(south, BorderLayout.SOUTH);
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    controller.shutdown();
+                }
+            });
 
             frame.pack();
             frame.setVisible(true);
+            if (computerColor == board.sideToMove()) controller.startComputerMove();
         });
     }
+
+    private static String describe(SearchResult result) {
+        String score = result.isMate() ? "mate " + result.getMateIn() : String.format("%+.2f", result.getScore() / 100.0);
+        return "depth " + result.getDepth() + "  " + score + "  " + result.pvString();
+    }
 }
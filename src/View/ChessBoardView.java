@@ -1,26 +1,43 @@
 package View;
+import Controller.ChessController;
 import Model.ChessBoard;
-import Model.ChessPiece;
+import Model.Move;
+import Model.Piece;
+import Model.PositionSnapshot;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.File;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import javax.swing.*;
 
+/**
+ * Draws the board and turns clicks into moves.
+ *
+ * Tiles scale with the panel. Pieces come from a {@link PieceAtlas} scaled to the current
+ * tile size, and only tiles inside the clip are painted. After a change, {@link #boardChanged()}
+ * compares the board with what was last drawn and repaints just the squares that differ.
+ * Painting reads the board's published {@link PositionSnapshot}, taken once per paint, so
+ * it always shows one whole position even if the board is changed on another thread.
+ */
 public class ChessBoardView extends JPanel {
     private static final int TILE_SIZE = 60;
+    private static final Color TARGET_COLOR = new Color(0, 128, 255, 140);
     private ChessBoard board;
-    private Map<String, Image> pieceImages;
+    private final PieceAtlas pieces;
+    private final int[] drawn = new int[64]; // piece code painted on each square
     private int selectedX = -1;
     private int selectedY = -1;
+    private ChessController controller; // plays the moves, or null to move on the board directly
+    private int hint = Move.NONE; // move suggested to the player, shown until the next move
+    private long targets; // legal destinations of the selected piece
+    private final Rectangle clip = new Rectangle(); // reused so painting allocates nothing
+    private BufferedImage targetMarker; // for the current tile size
 
     public ChessBoardView(ChessBoard board) {
         this.board = board;
-        this.pieceImages = loadPieceImages();
+        this.pieces = new PieceAtlas();
+        Arrays.fill(drawn, Piece.EMPTY);
 
         // Sets preferred size of the panel to 8 x 8
         setPreferredSize(new Dimension(8 * TILE_SIZE, 8 * TILE_SIZE));
@@ -29,37 +46,39 @@ public class ChessBoardView extends JPanel {
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                int x = e.getX() / TILE_SIZE;
-                int y = e.getY() / TILE_SIZE;
+                int tile = tileSize();
+                if (e.getX() >= 8 * tile || e.getY() >= 8 * tile) return;
+                int x = e.getX() / tile;
+                int y = e.getY() / tile;
 
                 handleSquareClick(x, y);
             }
         });
     }
 
+    public void setController(ChessController controller) {
+        this.controller = controller;
+    }
+
     /**
-     * Load the images of the pieces
-     * @return Map of piece images with the key being the piece name 
-     * and the value being the image of the piece
-     * @author https://github.com/OliverIsBad
+     * Show a suggested move by outlining its squares
+     * @param move packed move, or {@link Move#NONE} to remove the hint
      */
-    private Map<String, Image> loadPieceImages() {
-        Map<String, Image> images = new HashMap<>();
-        String[] pieceNames = {"pawn", "rook", "knight", "bishop", "queen", "king"};
-        String[] colors = {"white", "black"};
-
-        for (String color : colors) {
-            for (String piece : pieceNames) {
-                String fileName = color + "-" + piece + ".png";
-                try {
-                    Image img = ImageIO.read(new File("assets/" + fileName));
-                    images.put(fileName, img);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+    public void setHint(int move) {
+        repaintMoveSquares(hint);
+        hint = move;
+        repaintMoveSquares(hint);
+    }
+
+    /**
+     * Repaint the squares whose piece differs from what was last painted; call after the
+     * board changed, on the event dispatch thread
+     */
+    public void boardChanged() {
+        PositionSnapshot position = board.snapshot();
+        for (int square = 0; square < 64; square++) {
+            if (position.pieceOn(square) != drawn[square]) repaintSquare(square);
         }
-        return images;
     }
 
     /**
@@ -69,60 +88,140 @@ public class ChessBoardView extends JPanel {
      * @author https://github.com/OliverIsBad
      */
     public void handleSquareClick(int x, int y) {
-        if (selectedX == -1 && selectedY == -1) {
-            // No piece is selected yet
-            if (board.getPieceAt(x, y) != null) {
+        int square = ChessBoard.square(x, y);
+        boolean reselect = selectedX != -1 && (targets & (1L << square)) == 0 && board.legalTargets(square) != 0;
+        if (selectedX == -1 && selectedY == -1 || reselect) {
+            // No piece is selected yet, or another piece that can move is picked instead
+            if (board.pieceOn(square) != Piece.EMPTY && (controller == null || controller.isHumanTurn())) {
+                if (reselect) clearSelection();
                 selectedX = x;
                 selectedY = y;
-                System.out.println("Piece selected at: " + x + " , " + y);
+                // The board caches the position's legal moves, so this is a scan of one list
+                targets = board.legalTargets(square);
+                repaintSquare(square);
+                repaintSquares(targets);
             }
         } else {
             // Move the selected piece to the new square
-            board.movePiece(selectedX, selectedY, x, y);
-            selectedX = -1;
-            selectedY = -1;
-            repaint();
+            if (controller != null) {
+                controller.handleMove(selectedX, selectedY, x, y);
+            } else {
+                board.movePiece(selectedX, selectedY, x, y);
+            }
+            clearSelection();
+            setHint(Move.NONE);
+            boardChanged();
         }
     }
 
+    private void clearSelection() {
+        repaintSquare(ChessBoard.square(selectedX, selectedY));
+        repaintSquares(targets);
+        selectedX = -1;
+        selectedY = -1;
+        targets = 0;
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
+        int tile = tileSize();
+        clip.setBounds(0, 0, getWidth(), getHeight()); // kept as is when there is no clip
+        g.getClipBounds(clip);
+        // What super.paintComponent would do, without the copy of the graphics it makes
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        }
+        int firstCol = Math.max(0, clip.x / tile);
+        int lastCol = Math.min(7, (clip.x + clip.width - 1) / tile);
+        int firstRow = Math.max(0, clip.y / tile);
+        int lastRow = Math.min(7, (clip.y + clip.height - 1) / tile);
+        PositionSnapshot position = board.snapshot();
+
+        // Only the tiles inside the clip; a move repaints two to four of them
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
                 boolean isLightSquare = (row + col) % 2 == 0; // Determine color of square
                 g.setColor(isLightSquare ? Color.WHITE : Color.GRAY); // Set Color of square
-                g.fillRect(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+                g.fillRect(col * tile, row * tile, tile, tile);
 
-                ChessPiece piece = board.getPieceAt(col, row); // Get piece at the current square
-                if (piece != null) {
-                    drawPiece(g, piece, col * TILE_SIZE, row * TILE_SIZE); // if a piece is present call drawPiece
+                int square = ChessBoard.square(col, row);
+                int code = position.pieceOn(square); // Get piece at the current square
+                if (code != Piece.EMPTY) {
+                    pieces.draw(g, code, col * tile, row * tile, tile);
                 }
+                drawn[square] = code;
             }
         }
 
+        // Mark where the selected piece can go
+        if (targets != 0) {
+            BufferedImage marker = targetMarker(tile);
+            for (long bits = targets; bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                g.drawImage(marker, ChessBoard.fileOf(square) * tile, ChessBoard.rankOf(square) * tile, null);
+            }
+        }
+
+        // Outline the squares of the hint
+        if (hint != Move.NONE) {
+            g.setColor(Color.GREEN);
+            outline(g, ChessBoard.fileOf(Move.from(hint)), ChessBoard.rankOf(Move.from(hint)), tile);
+            outline(g, ChessBoard.fileOf(Move.to(hint)), ChessBoard.rankOf(Move.to(hint)), tile);
+        }
+
         // Highlight the selected square
         if (selectedX != -1 && selectedY != -1) {
             g.setColor(Color.RED);
-            g.drawRect(selectedX * TILE_SIZE, selectedY * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-            g.drawRect(selectedX * TILE_SIZE + 1, selectedY * TILE_SIZE + 1, TILE_SIZE - 2, TILE_SIZE - 2);
+            outline(g, selectedX, selectedY, tile);
         }
     }
 
     /**
-     * Draws the piece on the board
-     * @param g Graphics component
-     * @param piece Chess piece
-     * @param x x coordinates
-     * @param y y coordinates
-     * @author https://github.com/OliverIsBad
+     * Get the dot drawn on target squares, drawn once per tile size; filling an oval on
+     * every paint would allocate
      */
-    private void drawPiece(Graphics g, ChessPiece piece, int x, int y) {
-        String imageFileName = piece.getImageFileName();
-        Image image = pieceImages.get(imageFileName);
-        if (image != null) {
-            g.drawImage(image, x, y, TILE_SIZE, TILE_SIZE, this);
+    private BufferedImage targetMarker(int tile) {
+        if (targetMarker == null || targetMarker.getWidth() != tile) {
+            BufferedImage image = new BufferedImage(tile, tile, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(TARGET_COLOR);
+            int dot = Math.max(4, tile / 4);
+            g.fillOval((tile - dot) / 2, (tile - dot) / 2, dot, dot);
+            g.dispose();
+            targetMarker = image;
         }
-        else System.out.println("Image not found for piece: " + piece);
+        return targetMarker;
+    }
+
+    private static void outline(Graphics g, int x, int y, int tile) {
+        g.drawRect(x * tile, y * tile, tile, tile);
+        g.drawRect(x * tile + 1, y * tile + 1, tile - 2, tile - 2);
+    }
+
+    /**
+     * Get the tile size that fits the panel
+     */
+    private int tileSize() {
+        return Math.max(1, Math.min(getWidth(), getHeight()) / 8);
+    }
+
+    private void repaintSquare(int square) {
+        int tile = tileSize();
+        // One pixel more for the outline drawn on the tile's right and bottom edge
+        repaint(ChessBoard.fileOf(square) * tile, ChessBoard.rankOf(square) * tile, tile + 1, tile + 1);
+    }
+
+    private void repaintSquares(long squares) {
+        for (; squares != 0; squares &= squares - 1) {
+            repaintSquare(Long.numberOfTrailingZeros(squares));
+        }
+    }
+
+    private void repaintMoveSquares(int move) {
+        if (move == Move.NONE) return;
+        repaintSquare(Move.from(move));
+        repaintSquare(Move.to(move));
     }
 }
@@ -0,0 +1,118 @@
+package View;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.imageio.ImageIO;
+
+import Model.ChessPiece;
+
+/**
+ * The twelve piece images, pre-scaled once into a single image (a sprite atlas).
+ *
+ * The source PNGs are read in parallel, from the classpath ({@code /assets/}) when they
+ * are packaged there and from the {@code assets/} directory otherwise. The atlas holds
+ * one tile per piece code at the size the board draws them, in device pixels, so drawing
+ * a piece is a plain copy without scaling. It is rebuilt only when the tile size or the
+ * display scale changes. A compatible image lets Java2D keep the atlas in video memory.
+ */
+final class PieceAtlas {
+    private final BufferedImage[] sources = new BufferedImage[12]; // by piece code
+    private BufferedImage atlas;
+    private int tileSize; // in user space
+    private double scale; // device pixels per user-space pixel
+
+    /**
+     * Read all piece images in parallel
+     * @throws UncheckedIOException if an image cannot be read
+     */
+    PieceAtlas() {
+        List<CompletableFuture<BufferedImage>> loads = new ArrayList<>(12);
+        for (int code = 0; code < 12; code++) {
+            String fileName = ChessPiece.of(code).getImageFileName();
+            loads.add(CompletableFuture.supplyAsync(() -> read(fileName)));
+        }
+        for (int code = 0; code < 12; code++) {
+            sources[code] = loads.get(code).join();
+        }
+    }
+
+    private static BufferedImage read(String fileName) {
+        try (InputStream packaged = PieceAtlas.class.getResourceAsStream("/assets/" + fileName)) {
+            BufferedImage image = packaged != null ? ImageIO.read(packaged) : ImageIO.read(new File("assets", fileName));
+            if (image == null) throw new IOException("Not an image: " + fileName);
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read piece image " + fileName, e);
+        }
+    }
+
+    /**
+     * Draw a piece
+     * @param g graphics of the board
+     * @param code piece code
+     * @param x left edge of the tile
+     * @param y top edge of the tile
+     * @param tileSize size of a tile in user space
+     */
+    void draw(Graphics g, int code, int x, int y, int tileSize) {
+        double deviceScale = ((Graphics2D) g).getTransform().getScaleX();
+        if (atlas == null || tileSize != this.tileSize || deviceScale != scale) {
+            build(tileSize, deviceScale);
+        }
+        int pixels = atlas.getHeight();
+        g.drawImage(atlas, x, y, x + tileSize, y + tileSize, code * pixels, 0, (code + 1) * pixels, pixels, null);
+    }
+
+    private void build(int tileSize, double deviceScale) {
+        int pixels = Math.max(1, (int) Math.round(tileSize * deviceScale));
+        BufferedImage image = compatibleImage(12 * pixels, pixels);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        for (int code = 0; code < 12; code++) {
+            g.drawImage(downscale(sources[code], pixels), code * pixels, 0, pixels, pixels, null);
+        }
+        g.dispose();
+        atlas = image;
+        this.tileSize = tileSize;
+        this.scale = deviceScale;
+    }
+
+    /**
+     * Halve an image until it is at most twice the target size; one bicubic step from a
+     * much larger image skips source pixels and looks jagged
+     */
+    private static BufferedImage downscale(BufferedImage image, int pixels) {
+        while (image.getWidth() >= 2 * pixels && image.getHeight() >= 2 * pixels) {
+            BufferedImage half = new BufferedImage(image.getWidth() / 2, image.getHeight() / 2, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = half.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, half.getWidth(), half.getHeight(), null);
+            g.dispose();
+            image = half;
+        }
+        return image;
+    }
+
+    private static BufferedImage compatibleImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration configuration = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+            return configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+}